@@ -0,0 +1,119 @@
+package bench;
+
+import game.GameBenchmarks;
+import game.GenerationMode;
+import game.HeapBenchmarks;
+import game.ShortestPathBenchmarks;
+import student.MultiQueueBenchmarks;
+import student.PairingHeap;
+import student.PriorityQueueImpl;
+import student.SearchBenchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmark suite: heaps, shortest paths, cavern generation, cavern files,
+ * escape route search and the explore and escape phases of headless games, over sizes up to far beyond
+ * the largest game caverns. Every result includes the bytes allocated per operation.
+ * Compile temple/src and temple/bench/src together and run this class.
+ * Arguments: an optional list of name prefixes selecting which benchmarks to run, and
+ * -w warmup iterations, -i measured iterations, -t milliseconds per iteration.
+ */
+public class BenchMain {
+
+    /**
+     * The main program.
+     */
+    public static void main(String[] args) {
+        List<String> argList = new ArrayList<>(Arrays.asList(args));
+        int warmup = intOption(argList, "-w", 5);
+        int measure = intOption(argList, "-i", 5);
+        int millis = intOption(argList, "-t", 500);
+
+        BenchRunner runner = new BenchRunner(warmup, measure, millis);
+        runner.printHeader();
+
+        int[] heapSizes = {1_000, 100_000};
+        run(runner, argList, "heap.InternalMinHeap", HeapBenchmarks.internalMinHeap(), heapSizes);
+        run(runner, argList, "heap.PriorityQueueImpl", HeapBenchmarks.priorityQueueImpl(), heapSizes);
+        run(runner, argList, "heap.IndexMinHeap.d2", HeapBenchmarks.indexMinHeap(2), heapSizes);
+        run(runner, argList, "heap.IndexMinHeap.d4", HeapBenchmarks.indexMinHeap(4), heapSizes);
+        run(runner, argList, "heap.IndexMinHeap.d8", HeapBenchmarks.indexMinHeap(8), heapSizes);
+        run(runner, argList, "heap.PairingHeap", HeapBenchmarks.studentQueue(PairingHeap::new, 3), heapSizes);
+        // Searches of sparse graphs lower few priorities per poll, of dense ones many.
+        run(runner, argList, "heap.sparse.PriorityQueueImpl", HeapBenchmarks.studentQueue(PriorityQueueImpl::new, 1), heapSizes);
+        run(runner, argList, "heap.sparse.PairingHeap", HeapBenchmarks.studentQueue(PairingHeap::new, 1), heapSizes);
+        run(runner, argList, "heap.dense.PriorityQueueImpl", HeapBenchmarks.studentQueue(PriorityQueueImpl::new, 8), heapSizes);
+        run(runner, argList, "heap.dense.PairingHeap", HeapBenchmarks.studentQueue(PairingHeap::new, 8), heapSizes);
+        int[] threadCounts = {1, 2, 4, 8};
+        run(runner, argList, "concurrent.MultiQueue.x2", MultiQueueBenchmarks.multiQueue(2), threadCounts);
+        run(runner, argList, "concurrent.MultiQueue.x4", MultiQueueBenchmarks.multiQueue(4), threadCounts);
+        run(runner, argList, "concurrent.lockedPriorityQueueImpl", MultiQueueBenchmarks.lockedPriorityQueueImpl(),
+                threadCounts);
+
+        run(runner, argList, "heap.bulk.buildByAdd", HeapBenchmarks.buildByAdd(), heapSizes);
+        run(runner, argList, "heap.bulk.buildByAddAll", HeapBenchmarks.buildByAddAll(), heapSizes);
+        run(runner, argList, "heap.bulk.updateEach", HeapBenchmarks.updateEach(), heapSizes);
+        run(runner, argList, "heap.bulk.updatePriorities", HeapBenchmarks.updatePriorities(), heapSizes);
+
+        // Constants.MAX_ROWS is 25; the larger sizes are well beyond anything a game generates.
+        int[] cavernRows = {25, 100, 400};
+        for (GenerationMode mode : GenerationMode.values()) {
+            String suffix = "." + mode.name().toLowerCase();
+            run(runner, argList, "gen.digExploreCavern" + suffix, GameBenchmarks.digExploreCavern(mode), cavernRows);
+            run(runner, argList, "gen.digEscapeCavern" + suffix, GameBenchmarks.digEscapeCavern(mode), cavernRows);
+        }
+
+        run(runner, argList, "paths.bucket", ShortestPathBenchmarks.bucket(), cavernRows);
+        run(runner, argList, "paths.heap", ShortestPathBenchmarks.heap(), cavernRows);
+        for (int delta : new int[]{1, 4, 15, 60}) {
+            run(runner, argList, "paths.deltaStepping.d" + delta, ShortestPathBenchmarks.deltaStepping(delta),
+                    cavernRows);
+        }
+        run(runner, argList, "paths.distanceField", GameBenchmarks.distanceField(), cavernRows);
+        run(runner, argList, "paths.minPathLengthToTarget", ShortestPathBenchmarks.minPathLengthToTarget(), cavernRows);
+
+        run(runner, argList, "io.serialize", GameBenchmarks.serialize(), cavernRows);
+        run(runner, argList, "io.deserialize", GameBenchmarks.deserialize(), cavernRows);
+        run(runner, argList, "io.serializeWriter", GameBenchmarks.serializeWriter(), cavernRows);
+        run(runner, argList, "io.deserializeReader", GameBenchmarks.deserializeReader(), cavernRows);
+        run(runner, argList, "io.readBinary", GameBenchmarks.readBinary(), cavernRows);
+
+        run(runner, argList, "search.aStar.DistanceHeap", SearchBenchmarks.aStar(), cavernRows);
+        run(runner, argList, "search.aStar.PriorityQueueImpl", SearchBenchmarks.aStar(PriorityQueueImpl::new), cavernRows);
+        run(runner, argList, "search.aStar.PairingHeap", SearchBenchmarks.aStar(PairingHeap::new), cavernRows);
+
+        run(runner, argList, "solver.explore", GameBenchmarks.explore(), cavernRows);
+        run(runner, argList, "solver.escape", GameBenchmarks.escape(), cavernRows);
+    }
+
+    /**
+     * Run b through runner if name matches one of the filters in args (or there are none).
+     */
+    private static void run(BenchRunner runner, List<String> filters, String name, Benchmark b, int... params) {
+        if (filters.isEmpty() || filters.stream().anyMatch(name::startsWith)) {
+            runner.run(name, b, params);
+        }
+    }
+
+    /**
+     * Remove option opt and its value from args and return the value (or dflt if absent).
+     */
+    private static int intOption(List<String> args, String opt, int dflt) {
+        int i = args.indexOf(opt);
+        if (i < 0 || i + 1 >= args.size()) {
+            return dflt;
+        }
+        int value = dflt;
+        try {
+            value = Integer.parseInt(args.get(i + 1));
+        } catch (NumberFormatException e) {
+            System.err.println("Couldn't parse argument for " + opt + " option");
+        }
+        args.remove(i + 1);
+        args.remove(i);
+        return value;
+    }
+}
@@ -0,0 +1,123 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * An instance times Benchmarks: for each parameter value it runs a number of
+ * warmup iterations and then a number of measured iterations, each of which
+ * calls the benchmark repeatedly for a fixed amount of time.
+ * Results are printed as the mean and standard deviation of the time per operation,
+ * together with the bytes allocated per operation and the allocation rate
+ * (when the JVM can measure allocation per thread).
+ */
+public class BenchRunner {
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+
+    /**
+     * Counts the bytes allocated by each thread, or null if the JVM does not support it.
+     */
+    private final com.sun.management.ThreadMXBean allocations;
+
+    /**
+     * Values returned by the benchmarks are folded into sink so the JIT must compute them.
+     */
+    private volatile long sink;
+
+    /**
+     * Constructor: a runner doing warmup warmup iterations and measure measured
+     * iterations of iterationMillis milliseconds each.
+     */
+    public BenchRunner(int warmup, int measure, long iterationMillis) {
+        warmupIterations = warmup;
+        measureIterations = measure;
+        iterationNanos = iterationMillis * 1_000_000L;
+
+        com.sun.management.ThreadMXBean bean = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                bean = null;
+            }
+        }
+        allocations = bean;
+    }
+
+    /**
+     * Print the header line for results.
+     */
+    public void printHeader() {
+        System.out.println(String.format(Locale.ROOT, "%-40s %10s %16s %14s %14s %10s",
+                "Benchmark", "param", "ns/op", "error", "B/op", "MB/s"));
+    }
+
+    /**
+     * Measure b with each of the parameter values in params and print one line
+     * per value, labelled with name.
+     */
+    public void run(String name, Benchmark b, int... params) {
+        for (int param : params) {
+            b.setUp(param);
+            for (int i = 0; i < warmupIterations; i++) {
+                iteration(b);
+            }
+
+            double[] nsPerOp = new double[measureIterations];
+            double bytesPerOp = 0;
+            for (int i = 0; i < measureIterations; i++) {
+                double[] result = iteration(b);
+                nsPerOp[i] = result[0];
+                bytesPerOp += result[1] / measureIterations;
+            }
+
+            double mean = 0;
+            for (double x : nsPerOp) {
+                mean += x;
+            }
+            mean /= nsPerOp.length;
+            double var = 0;
+            for (double x : nsPerOp) {
+                var += (x - mean) * (x - mean);
+            }
+            double sd = nsPerOp.length > 1 ? Math.sqrt(var / (nsPerOp.length - 1)) : 0;
+
+            if (allocations == null) {
+                System.out.println(String.format(Locale.ROOT, "%-40s %10d %16.1f %14.1f %14s %10s",
+                        name, param, mean, sd, "n/a", "n/a"));
+            } else {
+                double mbPerSecond = bytesPerOp / mean * 1e9 / (1 << 20);
+                System.out.println(String.format(Locale.ROOT, "%-40s %10d %16.1f %14.1f %14.0f %10.1f",
+                        name, param, mean, sd, bytesPerOp, mbPerSecond));
+            }
+        }
+    }
+
+    /**
+     * Call b.run() repeatedly for one iteration and return the mean time per call
+     * in ns and the mean bytes allocated per call (0 if that cannot be measured).
+     */
+    private double[] iteration(Benchmark b) {
+        long threadId = Thread.currentThread().getId();
+        long acc = 0;
+        long ops = 0;
+        long timed = 0;
+        long allocated = 0;
+        long start = System.nanoTime();
+        do {
+            b.beforeEach();
+            long bytesBefore = (allocations == null ? 0 : allocations.getThreadAllocatedBytes(threadId));
+            long before = System.nanoTime();
+            acc ^= b.run();
+            timed += System.nanoTime() - before;
+            allocated += (allocations == null ? 0 : allocations.getThreadAllocatedBytes(threadId) - bytesBefore);
+            ops++;
+        } while (System.nanoTime() - start < iterationNanos);
+        sink ^= acc;
+        return new double[]{(double) timed / ops, (double) allocated / ops};
+    }
+}
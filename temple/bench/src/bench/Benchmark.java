@@ -0,0 +1,29 @@
+package bench;
+
+/**
+ * An instance is one measured operation of the benchmark suite.
+ * The runner calls setUp once per parameter value and then calls
+ * beforeEach and run repeatedly, timing only the calls to run.
+ */
+public interface Benchmark {
+
+    /**
+     * Prepare for runs with parameter param (e.g. a problem size).
+     * This is not timed.
+     */
+    default void setUp(int param) {
+    }
+
+    /**
+     * Prepare for the next call of run (e.g. restore state that run consumes).
+     * This is not timed.
+     */
+    default void beforeEach() {
+    }
+
+    /**
+     * Perform the operation once and return a value derived from its result,
+     * so that the work cannot be optimised away.
+     */
+    long run();
+}
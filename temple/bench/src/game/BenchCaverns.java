@@ -0,0 +1,32 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * Caverns for the benchmarks, generated the way GameState generates them but
+ * with a given number of rows (and 8/5 as many columns, like the largest game caverns).
+ */
+public final class BenchCaverns {
+
+    private BenchCaverns() {
+    }
+
+    /**
+     * Return the number of columns of a benchmark cavern with rows rows.
+     */
+    public static int cols(int rows) {
+        return rows * 8 / 5;
+    }
+
+    /**
+     * Return a new explore cavern and the escape cavern that goes with it, with
+     * rows rows, generated from seed.
+     */
+    public static Cavern[] pair(int rows, long seed) {
+        Random rand = new Random(seed);
+        Cavern explore = Cavern.digExploreCavern(rows, cols(rows), rand);
+        Tile orb = explore.getTarget().getTile();
+        Cavern escape = Cavern.digEscapeCavern(rows, cols(rows), orb.getRow(), orb.getColumn(), rand);
+        return new Cavern[]{explore, escape};
+    }
+}
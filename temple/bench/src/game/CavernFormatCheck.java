@@ -0,0 +1,134 @@
+package game;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A check that the cavern file formats reject malformed input with the exceptions
+ * they document. Text that breaks one rule of a small valid cavern (a cell outside
+ * the grid, a repeated id or cell, no ENTRANCE or two, an unknown target or exit, a
+ * number out of range) must throw an IllegalArgumentException. Truncated and
+ * randomly corrupted copies of a binary cavern file must either be read or throw an
+ * IOException. Run this class with an optional argument, the number of corrupted
+ * binary files to try. It prints a report and throws an exception if a check fails.
+ */
+public final class CavernFormatCheck {
+
+    private static final String VALID = "3:3,trgt:7\n"
+            + "5,1,0,0,ENTRANCE=6-1\n"
+            + "6,1,1,3,FLOOR=5-1,7-2\n"
+            + "7,1,2,0,ORB=6-2\n";
+
+    private CavernFormatCheck() {
+    }
+
+    /**
+     * The main program.
+     */
+    public static void main(String[] args) throws IOException {
+        int corruptions = (args.length > 0 ? Integer.parseInt(args[0]) : 2_000);
+
+        checkText();
+        checkBinary(corruptions);
+    }
+
+    /**
+     * Check that VALID is read and that each way of breaking it is rejected.
+     */
+    private static void checkText() throws IOException {
+        Cavern cavern = Cavern.deserialize(new StringReader(VALID));
+        check(cavern.getGraph().size() == 3 && cavern.getTarget().getTile().getType() == Tile.Type.ORB,
+                "the valid cavern was read wrongly");
+
+        String[][] cases = {
+                {"a row outside the grid", "6,1,1,3", "6,9,1,3"},
+                {"a column outside the grid", "7,1,2,0", "7,1,16,0"},
+                {"an empty grid", "3:3", "0:3"},
+                {"a repeated id", "7,1,2,0", "6,1,2,0"},
+                {"a repeated cell", "7,1,2,0", "7,1,1,0"},
+                {"no ENTRANCE", "ENTRANCE", "FLOOR"},
+                {"two ENTRANCEs", "FLOOR", "ENTRANCE"},
+                {"an unknown target", "trgt:7", "trgt:8"},
+                {"an unknown exit", "ORB=6-2", "ORB=9-2"},
+                {"gold out of the int range", "6,1,1,3", "6,1,1,3000000000"},
+                {"a row out of the int range", "6,1,1,3", "6,4294967297,1,3"},
+                {"an id out of the long range", "7,1,2,0", "99999999999999999999,1,2,0"},
+                {"an edge between cells that are not adjacent", "5,1,0,0", "5,0,0,0"},
+        };
+        for (String[] c : cases) {
+            check(VALID.contains(c[1]), "the case of " + c[0] + " does not apply");
+            String text = VALID.replace(c[1], c[2]);
+            try {
+                Cavern.deserialize(new StringReader(text));
+                throw new IllegalStateException("Cavern format check failed: " + c[0] + " was accepted");
+            } catch (IllegalArgumentException e) {
+                // rejected, as it should be
+            }
+        }
+        System.out.println(String.format("text       : ok, %d malformed caverns rejected", cases.length));
+    }
+
+    /**
+     * Write an escape cavern in the binary format and check that every truncation of
+     * the file, and corruptions copies of it with a few random bytes changed, are
+     * either read or rejected with an IOException.
+     */
+    private static void checkBinary(int corruptions) throws IOException {
+        Path file = Files.createTempFile("cavern", ".bin");
+        try {
+            Cavern cavern = BenchCaverns.pair(40, 1)[1];
+            cavern.writeBinary(file);
+            byte[] bytes = Files.readAllBytes(file);
+            Cavern copy = Cavern.readBinary(file);
+            check(copy.getGraph().size() == cavern.getGraph().size()
+                    && copy.minPathLengthToTarget(copy.getEntrance())
+                    == cavern.minPathLengthToTarget(cavern.getEntrance()), "the binary file was read wrongly");
+
+            int rejected = 0;
+            for (int len = 0; len < bytes.length; len += 1 + len / 8) {
+                rejected += readOrReject(file, Arrays.copyOf(bytes, len), "truncated to " + len + " bytes");
+            }
+            Random rand = new Random(5);
+            for (int i = 0; i < corruptions; i++) {
+                byte[] b = bytes.clone();
+                for (int j = 1 + rand.nextInt(4); j > 0; j--) {
+                    b[rand.nextInt(b.length)] = (byte) rand.nextInt(256);
+                }
+                rejected += readOrReject(file, b, "corruption " + i);
+            }
+            System.out.println(String.format("binary     : ok, %d of the damaged files rejected", rejected));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Write bytes to file and read it as a binary cavern file, returning 1 if that
+     * throws an IOException and 0 if it reads a cavern. Any other exception fails
+     * the check, described by what.
+     */
+    private static int readOrReject(Path file, byte[] bytes, String what) throws IOException {
+        Files.write(file, bytes);
+        try {
+            Cavern.readBinary(file);
+            return 0;
+        } catch (IOException e) {
+            return 1;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cavern format check failed: " + what + " threw " + e, e);
+        }
+    }
+
+    /**
+     * Throw an IllegalStateException with message msg if b is false.
+     */
+    private static void check(boolean b, String msg) {
+        if (!b) {
+            throw new IllegalStateException("Cavern format check failed: " + msg);
+        }
+    }
+}
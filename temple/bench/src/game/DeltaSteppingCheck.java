@@ -0,0 +1,102 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A check that DeltaStepping computes exactly the distances of Dijkstra's algorithm
+ * (ShortestPaths.bucketSearch), for several bucket widths and pools of several sizes,
+ * so that the work is scheduled differently each time, on escape caverns up to one
+ * larger than DeltaStepping.PARALLEL_THRESHOLD nodes. Then it times both engines on
+ * that cavern on the common pool, which is how ShortestPaths chooses between them:
+ * delegating to DeltaStepping pays off only where the ratio printed is above 1.
+ * Run this class with an optional argument, the number of rows of the large cavern.
+ * It prints a report and throws an exception if a check fails.
+ */
+public final class DeltaSteppingCheck {
+
+    private static final int[] DELTAS = {1, 3, DeltaStepping.DEFAULT_DELTA, 40};
+    private static final int[] WORKERS = {1, 2, 4};
+
+    private DeltaSteppingCheck() {
+    }
+
+    /**
+     * The main program.
+     */
+    public static void main(String[] args) {
+        int rows = (args.length > 0 ? Integer.parseInt(args[0]) : 560);
+
+        for (long seed = 1; seed <= 20; seed++) {
+            checkSame(BenchCaverns.pair(25 + (int) seed * 5, seed)[1], seed);
+        }
+        System.out.println("small      : ok, 20 caverns");
+
+        Cavern large = BenchCaverns.pair(rows, 42)[1];
+        checkSame(large, 42);
+        System.out.println(String.format("large      : ok, %d nodes (threshold %d)",
+                large.getCavernGraph().size(), DeltaStepping.PARALLEL_THRESHOLD));
+
+        time(large);
+    }
+
+    /**
+     * Check that DeltaStepping gives the distances of bucketSearch from a few sources
+     * of cavern, for every delta of DELTAS on pools of every size of WORKERS.
+     */
+    private static void checkSame(Cavern cavern, long seed) {
+        CavernGraph graph = cavern.getCavernGraph();
+        int n = graph.size();
+        int[] expected = new int[n];
+        int[] actual = new int[n];
+        for (int source : new int[]{0, n / 2, n - 1}) {
+            Arrays.fill(expected, -1);
+            ShortestPaths.bucketSearch(graph, source, -1, expected, null);
+            for (int workers : WORKERS) {
+                ForkJoinPool pool = new ForkJoinPool(workers);
+                try {
+                    for (int delta : DELTAS) {
+                        DeltaStepping.search(graph, source, actual, delta, pool);
+                        check(Arrays.equals(expected, actual), "distances differ from bucketSearch (cavern "
+                                + seed + ", source " + source + ", delta " + delta + ", " + workers + " workers)");
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Print the best of several times of bucketSearch and of DeltaStepping with the
+     * default delta on the common pool, computing a full field of cavern.
+     */
+    private static void time(Cavern cavern) {
+        CavernGraph graph = cavern.getCavernGraph();
+        int[] dist = new int[graph.size()];
+        long sequential = Long.MAX_VALUE;
+        long parallel = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            Arrays.fill(dist, -1);
+            ShortestPaths.bucketSearch(graph, 0, -1, dist, null);
+            long mid = System.nanoTime();
+            DeltaStepping.search(graph, 0, dist, DeltaStepping.DEFAULT_DELTA, ForkJoinPool.commonPool());
+            long end = System.nanoTime();
+            sequential = Math.min(sequential, mid - start);
+            parallel = Math.min(parallel, end - mid);
+        }
+        System.out.println(String.format("timing     : bucket %.1f ms, delta-stepping %.1f ms on %d workers,"
+                        + " speedup %.2f", sequential / 1e6, parallel / 1e6,
+                ForkJoinPool.getCommonPoolParallelism(), (double) sequential / parallel));
+    }
+
+    /**
+     * Throw an IllegalStateException with message msg if b is false.
+     */
+    private static void check(boolean b, String msg) {
+        if (!b) {
+            throw new IllegalStateException("DeltaStepping check failed: " + msg);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package game;
+
+import bench.Benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks of cavern generation, cavern files and whole solver phases.
+ * The parameter of each is the number of rows of the caverns (see BenchCaverns).
+ */
+public final class GameBenchmarks {
+
+    private GameBenchmarks() {
+    }
+
+    /**
+     * Return a benchmark of Cavern.digExploreCavern in the given mode, with a new seed
+     * for every operation.
+     */
+    public static Benchmark digExploreCavern(GenerationMode mode) {
+        return new Benchmark() {
+            private int rows;
+            private long seed;
+
+            @Override
+            public void setUp(int r) {
+                rows = r;
+            }
+
+            @Override
+            public long run() {
+                return Cavern.digExploreCavern(rows, BenchCaverns.cols(rows), new Random(seed++), mode, null)
+                        .numOpenTiles();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.digEscapeCavern in the given mode around the orb of
+     * a fixed explore cavern, with a new seed for every operation.
+     */
+    public static Benchmark digEscapeCavern(GenerationMode mode) {
+        return new Benchmark() {
+            private int rows;
+            private Tile orb;
+            private long seed;
+
+            @Override
+            public void setUp(int r) {
+                rows = r;
+                orb = BenchCaverns.pair(rows, 42)[0].getTarget().getTile();
+            }
+
+            @Override
+            public long run() {
+                return Cavern.digEscapeCavern(rows, BenchCaverns.cols(rows), orb.getRow(), orb.getColumn(),
+                        new Random(seed++), mode, null).numOpenTiles();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of computing the distance field of an escape cavern,
+     * which is what the first call of Cavern.minPathLengthToTarget costs.
+     */
+    public static Benchmark distanceField() {
+        return new Benchmark() {
+            private Cavern[] caverns;
+            private Cavern cavern;
+
+            @Override
+            public void setUp(int rows) {
+                caverns = BenchCaverns.pair(rows, 42);
+            }
+
+            @Override
+            public void beforeEach() {
+                // A fresh copy, so that its distance field has not been computed yet.
+                cavern = Cavern.deserialize(caverns[1].serialize());
+            }
+
+            @Override
+            public long run() {
+                return cavern.minPathLengthToTarget(cavern.getEntrance());
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.serialize() of an escape cavern.
+     */
+    public static Benchmark serialize() {
+        return new EscapeCavernBenchmark() {
+            @Override
+            public long run() {
+                return cavern.serialize().size();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.deserialize(List) of an escape cavern.
+     */
+    public static Benchmark deserialize() {
+        return new EscapeCavernBenchmark() {
+            @Override
+            public long run() {
+                return Cavern.deserialize(lines).numOpenTiles();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.serialize(Writer) of an escape cavern.
+     */
+    public static Benchmark serializeWriter() {
+        return new EscapeCavernBenchmark() {
+            @Override
+            public long run() {
+                StringWriter out = new StringWriter(text.length());
+                try {
+                    cavern.serialize(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return out.getBuffer().length();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.deserialize(Reader) of an escape cavern.
+     */
+    public static Benchmark deserializeReader() {
+        return new EscapeCavernBenchmark() {
+            @Override
+            public long run() {
+                try {
+                    return Cavern.deserialize(new StringReader(text)).numOpenTiles();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.readBinary of an escape cavern.
+     */
+    public static Benchmark readBinary() {
+        return new EscapeCavernBenchmark() {
+            @Override
+            public long run() {
+                try {
+                    return Cavern.readBinary(binary).numOpenTiles();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of the explore phase of a headless game (Explorer.explore).
+     */
+    public static Benchmark explore() {
+        return new GameBenchmark() {
+            @Override
+            public long run() {
+                state.explore();
+                return state.getExploreSucceeded() ? 1 : 0;
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of the escape phase of a headless game (Explorer.escape),
+     * after a successful explore phase.
+     */
+    public static Benchmark escape() {
+        return new GameBenchmark() {
+            @Override
+            public void beforeEach() {
+                super.beforeEach();
+                state.explore();
+            }
+
+            @Override
+            public long run() {
+                state.escape();
+                return state.getGoldCollected();
+            }
+        };
+    }
+
+    /**
+     * A benchmark over an escape cavern, its text and a binary file of it, made in setUp.
+     */
+    private abstract static class EscapeCavernBenchmark implements Benchmark {
+        Cavern cavern;
+        List<String> lines;
+        String text;
+        Path binary;
+
+        @Override
+        public void setUp(int rows) {
+            cavern = BenchCaverns.pair(rows, 42)[1];
+            lines = cavern.serialize();
+            StringWriter out = new StringWriter();
+            try {
+                cavern.serialize(out);
+                binary = Files.createTempFile("cavern", ".bin");
+                binary.toFile().deleteOnExit();
+                cavern.writeBinary(binary);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            text = out.toString();
+        }
+    }
+
+    /**
+     * A benchmark over a new headless GameState for every operation.
+     * Escaping takes gold from the escape cavern, so each state gets a fresh copy of it.
+     */
+    private abstract static class GameBenchmark implements Benchmark {
+        Cavern explore;
+        List<String> escapeLines;
+        GameState state;
+
+        @Override
+        public void setUp(int rows) {
+            Cavern[] caverns = BenchCaverns.pair(rows, 42);
+            explore = caverns[0];
+            escapeLines = caverns[1].serialize();
+        }
+
+        @Override
+        public void beforeEach() {
+            state = new GameState(explore, Cavern.deserialize(escapeLines));
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package game;
+
+import bench.Benchmark;
+import student.PriorityQueue;
+import student.PriorityQueueImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks comparing InternalMinHeap, student.PriorityQueueImpl, student.PairingHeap
+ * and IndexMinHeap.
+ * Each benchmark replays the same recorded sequence of operations, shaped like a
+ * Dijkstra run: every key is added, and then polls are interleaved with
+ * decreases of priorities of keys still in the queue. The parameter is the
+ * number of keys.
+ * <p>
+ * The bulk benchmarks compare building a PriorityQueueImpl of n keys, and changing
+ * the priorities of all of them, one key at a time and with the bulk operations.
+ */
+public final class HeapBenchmarks {
+
+    private static final byte ADD = 0;
+    private static final byte POLL = 1;
+    private static final byte DECREASE = 2;
+
+    /**
+     * The number of decreases attempted before each poll, unless a benchmark says otherwise.
+     */
+    private static final int DECREASES_PER_POLL = 3;
+
+    private HeapBenchmarks() {
+    }
+
+    /**
+     * Return a benchmark of InternalMinHeap.
+     */
+    public static Benchmark internalMinHeap() {
+        return new TraceBenchmark() {
+            @Override
+            public long run() {
+                InternalMinHeap<Integer> heap = new InternalMinHeap<>();
+                long acc = 0;
+                for (int i = 0; i < trace.length; i++) {
+                    switch (trace.ops[i]) {
+                        case ADD:
+                            heap.add(trace.boxedKeys[i], trace.priorities[i]);
+                            break;
+                        case POLL:
+                            acc += heap.poll();
+                            break;
+                        default:
+                            heap.changePriority(trace.boxedKeys[i], trace.priorities[i]);
+                    }
+                }
+                return acc;
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of student.PriorityQueueImpl.
+     */
+    public static Benchmark priorityQueueImpl() {
+        return studentQueue(PriorityQueueImpl::new, DECREASES_PER_POLL);
+    }
+
+    /**
+     * Return a benchmark of the student.PriorityQueue made by queues, on traces with
+     * decreases attempted decreases of priorities before each poll: few for a search
+     * of a sparse graph, many for a dense one.
+     */
+    public static Benchmark studentQueue(Supplier<PriorityQueue<Integer>> queues, int decreases) {
+        return new TraceBenchmark(decreases) {
+            @Override
+            public long run() {
+                PriorityQueue<Integer> heap = queues.get();
+                long acc = 0;
+                for (int i = 0; i < trace.length; i++) {
+                    switch (trace.ops[i]) {
+                        case ADD:
+                            heap.add(trace.boxedKeys[i], trace.priorities[i]);
+                            break;
+                        case POLL:
+                            acc += heap.poll();
+                            break;
+                        default:
+                            heap.updatePriority(trace.boxedKeys[i], trace.priorities[i]);
+                    }
+                }
+                return acc;
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of IndexMinHeap with arity d.
+     * The heap is allocated once per parameter and cleared by being emptied.
+     */
+    public static Benchmark indexMinHeap(int d) {
+        return new TraceBenchmark() {
+            private IndexMinHeap heap;
+
+            @Override
+            public void setUp(int n) {
+                super.setUp(n);
+                heap = new IndexMinHeap(n, d);
+            }
+
+            @Override
+            public long run() {
+                long acc = 0;
+                for (int i = 0; i < trace.length; i++) {
+                    switch (trace.ops[i]) {
+                        case ADD:
+                            heap.add(trace.keys[i], trace.priorities[i]);
+                            break;
+                        case POLL:
+                            acc += heap.poll();
+                            break;
+                        default:
+                            heap.changePriority(trace.keys[i], trace.priorities[i]);
+                    }
+                }
+                return acc;
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of building a PriorityQueueImpl by adding keys one at a time.
+     */
+    public static Benchmark buildByAdd() {
+        return new BulkBenchmark() {
+            @Override
+            public long run() {
+                PriorityQueueImpl<Integer> heap = new PriorityQueueImpl<>();
+                for (int i = 0; i < priorities.length; i++) {
+                    heap.add(keys.get(i), priorities[i]);
+                }
+                return heap.peek();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of building a PriorityQueueImpl with addAll.
+     */
+    public static Benchmark buildByAddAll() {
+        return new BulkBenchmark() {
+            @Override
+            public long run() {
+                PriorityQueueImpl<Integer> heap = new PriorityQueueImpl<>(keys, priorities);
+                return heap.peek();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of changing the priority of every key of a PriorityQueueImpl
+     * one at a time.
+     */
+    public static Benchmark updateEach() {
+        return new BulkBenchmark() {
+            @Override
+            public long run() {
+                for (int i = 0; i < newPriorities.length; i++) {
+                    heap.updatePriority(keys.get(i), newPriorities[i]);
+                }
+                return heap.peek();
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of changing the priority of every key of a PriorityQueueImpl
+     * with updatePriorities.
+     */
+    public static Benchmark updatePriorities() {
+        return new BulkBenchmark() {
+            @Override
+            public long run() {
+                heap.updatePriorities(keys, newPriorities);
+                return heap.peek();
+            }
+        };
+    }
+
+    /**
+     * A benchmark over keys 0..n-1 with random priorities and random new priorities,
+     * and a heap of the keys with their priorities, rebuilt before each run.
+     */
+    private abstract static class BulkBenchmark implements Benchmark {
+        List<Integer> keys;
+        double[] priorities;
+        double[] newPriorities;
+        PriorityQueueImpl<Integer> heap;
+
+        @Override
+        public void setUp(int n) {
+            Random rand = new Random(42);
+            keys = new ArrayList<>(n);
+            priorities = new double[n];
+            newPriorities = new double[n];
+            for (int k = 0; k < n; k++) {
+                keys.add(k);
+                priorities[k] = rand.nextInt(1 << 20);
+                newPriorities[k] = rand.nextInt(1 << 20);
+            }
+        }
+
+        @Override
+        public void beforeEach() {
+            heap = new PriorityQueueImpl<>(keys, Arrays.copyOf(priorities, priorities.length));
+        }
+    }
+
+    /**
+     * A benchmark that replays a trace recorded in setUp.
+     */
+    private abstract static class TraceBenchmark implements Benchmark {
+        private final int decreases;
+        Trace trace;
+
+        TraceBenchmark() {
+            this(DECREASES_PER_POLL);
+        }
+
+        TraceBenchmark(int decreasesPerPoll) {
+            decreases = decreasesPerPoll;
+        }
+
+        @Override
+        public void setUp(int n) {
+            trace = new Trace(n, decreases, 42);
+        }
+    }
+
+    /**
+     * An instance is a recorded sequence of heap operations over keys 0..n-1.
+     * Every key is added and every key is eventually polled, so the heap is
+     * empty at the end of a replay.
+     */
+    private static final class Trace {
+        private final byte[] ops;
+        private final int[] keys;
+        private final Integer[] boxedKeys;
+        private final double[] priorities;
+        private final int n;
+        private int length;
+
+        /**
+         * Constructor: a trace over n keys with up to decreases decreases before each
+         * poll, using seed as the source of randomness.
+         */
+        private Trace(int n, int decreases, long seed) {
+            Random rand = new Random(seed);
+            this.n = n;
+            int capacity = (decreases + 2) * n;
+            ops = new byte[capacity];
+            keys = new int[capacity];
+            boxedKeys = new Integer[capacity];
+            priorities = new double[capacity];
+
+            // The oracle orders (priority, key) pairs the way the heaps will see them.
+            double[] current = new double[n];
+            TreeSet<Long> oracle = new TreeSet<>();
+            for (int k = 0; k < n; k++) {
+                current[k] = rand.nextInt(1 << 20);
+                record(ADD, k, current[k]);
+                oracle.add(encode(current[k], k));
+            }
+            while (!oracle.isEmpty()) {
+                for (int j = 0; j < decreases && !oracle.isEmpty(); j++) {
+                    int k = rand.nextInt(n);
+                    if (oracle.remove(encode(current[k], k))) {
+                        current[k] = Math.floor(current[k] * rand.nextDouble());
+                        record(DECREASE, k, current[k]);
+                        oracle.add(encode(current[k], k));
+                    }
+                }
+                int k = (int) (oracle.pollFirst() & 0xFFFFFFFFL);
+                record(POLL, k, current[k]);
+            }
+        }
+
+        private static long encode(double p, int k) {
+            return ((long) p << 32) | k;
+        }
+
+        /**
+         * Record operation op on key k with priority p. The heaps are given p * n + k,
+         * so that no two keys have the same priority and every heap polls the keys in
+         * the order of the oracle (which breaks ties by key).
+         */
+        private void record(byte op, int k, double p) {
+            ops[length] = op;
+            keys[length] = k;
+            boxedKeys[length] = k;
+            priorities[length] = p * n + k;
+            length++;
+        }
+    }
+}
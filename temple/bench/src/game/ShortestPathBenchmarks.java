@@ -0,0 +1,96 @@
+package game;
+
+import bench.Benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmarks comparing the bucket-queue and heap engines of ShortestPaths and
+ * parallel delta-stepping.
+ * Each run computes the full distance field from the orb's cell of an escape
+ * cavern (edge weights 1..Cavern.MAX_EDGE_WEIGHT). The parameter is the number
+ * of rows of the cavern (see BenchCaverns).
+ */
+public final class ShortestPathBenchmarks {
+
+    private ShortestPathBenchmarks() {
+    }
+
+    /**
+     * Return a benchmark of ShortestPaths.bucketSearch.
+     */
+    public static Benchmark bucket() {
+        return new FieldBenchmark() {
+            @Override
+            public long run() {
+                ShortestPaths.bucketSearch(graph, source, -1, fill(dist), null);
+                return dist[graph.size() - 1];
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of ShortestPaths.heapSearch.
+     */
+    public static Benchmark heap() {
+        return new FieldBenchmark() {
+            @Override
+            public long run() {
+                ShortestPaths.heapSearch(graph, source, -1, fill(dist), null);
+                return dist[graph.size() - 1];
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of DeltaStepping with buckets of width delta on the common pool.
+     */
+    public static Benchmark deltaStepping(int delta) {
+        return new FieldBenchmark() {
+            @Override
+            public long run() {
+                DeltaStepping.search(graph, source, dist, delta, ForkJoinPool.commonPool());
+                return dist[graph.size() - 1];
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of Cavern.minPathLengthToTarget from the orb's cell to the exit.
+     */
+    public static Benchmark minPathLengthToTarget() {
+        return new FieldBenchmark() {
+            @Override
+            public long run() {
+                return cavern.minPathLengthToTarget(graph.node(source));
+            }
+        };
+    }
+
+    /**
+     * A benchmark over the escape cavern and source node built in setUp.
+     */
+    private abstract static class FieldBenchmark implements Benchmark {
+        Cavern cavern;
+        CavernGraph graph;
+        int source;
+        int[] dist;
+
+        @Override
+        public void setUp(int rows) {
+            cavern = BenchCaverns.pair(rows, 42)[1];
+            graph = cavern.getCavernGraph();
+            source = graph.size() / 2;
+            dist = new int[graph.size()];
+        }
+
+        /**
+         * Fill d with -1, as ShortestPaths requires, and return it.
+         */
+        static int[] fill(int[] d) {
+            Arrays.fill(d, -1);
+            return d;
+        }
+    }
+}
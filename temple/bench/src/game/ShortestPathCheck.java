@@ -0,0 +1,100 @@
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A check of the path queries of ShortestPaths and Cavern. On explore and escape
+ * caverns from several seeds, Cavern.minPathToTarget from random nodes must be a
+ * path of edges from the node to the target whose length is distanceToTarget, and
+ * bucketSearch and heapSearch, stopping at the target and recording parents, must
+ * return that distance and parents along edges of shortest paths. Run this class
+ * with optional arguments: the number of seeds and the number of rows of the
+ * caverns. It prints a report and throws an exception if a check fails.
+ */
+public final class ShortestPathCheck {
+
+    private ShortestPathCheck() {
+    }
+
+    /**
+     * The main program.
+     */
+    public static void main(String[] args) {
+        int seeds = (args.length > 0 ? Integer.parseInt(args[0]) : 10);
+        int rows = (args.length > 1 ? Integer.parseInt(args[1]) : 60);
+
+        int queries = 0;
+        for (long seed = 1; seed <= seeds; seed++) {
+            for (Cavern cavern : BenchCaverns.pair(rows, seed)) {
+                Random rand = new Random(seed);
+                CavernGraph graph = cavern.getCavernGraph();
+                for (int q = 0; q < 20; q++) {
+                    Node start = graph.node(rand.nextInt(graph.size()));
+                    checkPath(cavern, start, seed);
+                    checkEngines(cavern, start, seed);
+                    queries++;
+                }
+            }
+        }
+        System.out.println(String.format("paths      : ok, %d queries on %d caverns of %d rows",
+                queries, 2 * seeds, rows));
+    }
+
+    /**
+     * Check that cavern.minPathToTarget(start) is a path from start to the target
+     * whose length is cavern.distanceToTarget(start).
+     */
+    private static void checkPath(Cavern cavern, Node start, long seed) {
+        List<Node> path = cavern.minPathToTarget(start);
+        check(path.get(0) == start && path.get(path.size() - 1) == cavern.getTarget(),
+                "the path does not run from start to the target (seed " + seed + ")");
+        int length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            Edge e = path.get(i - 1).findEdge(path.get(i));
+            check(e != null, "the path has a step that is not an edge (seed " + seed + ")");
+            length += e.length();
+        }
+        check(length == cavern.distanceToTarget(start),
+                "the path has length " + length + ", not " + cavern.distanceToTarget(start) + " (seed " + seed + ")");
+    }
+
+    /**
+     * Check that bucketSearch and heapSearch from start to the target of cavern return
+     * cavern.distanceToTarget(start), and that each node they settle on the way has
+     * a parent joined to it by an edge of a shortest path from start.
+     */
+    private static void checkEngines(Cavern cavern, Node start, long seed) {
+        CavernGraph graph = cavern.getCavernGraph();
+        int n = graph.size();
+        int expected = cavern.distanceToTarget(start);
+        int[] dist = new int[n];
+        int[] parent = new int[n];
+        for (boolean bucket : new boolean[]{true, false}) {
+            Arrays.fill(dist, -1);
+            Arrays.fill(parent, -1);
+            int d = (bucket
+                    ? ShortestPaths.bucketSearch(graph, start.index, cavern.getTarget().index, dist, parent)
+                    : ShortestPaths.heapSearch(graph, start.index, cavern.getTarget().index, dist, parent));
+            String engine = (bucket ? "bucketSearch" : "heapSearch");
+            check(d == expected, engine + " returned " + d + ", not " + expected + " (seed " + seed + ")");
+            int f = cavern.getTarget().index;
+            for (; parent[f] >= 0; f = parent[f]) {
+                Edge e = graph.node(parent[f]).findEdge(graph.node(f));
+                check(e != null && dist[parent[f]] + e.length() == dist[f],
+                        engine + " recorded a parent off every shortest path (seed " + seed + ")");
+            }
+            check(f == start.index && dist[f] == 0, engine + "'s parents do not lead back to start (seed " + seed + ")");
+        }
+    }
+
+    /**
+     * Throw an IllegalStateException with message msg if b is false.
+     */
+    private static void check(boolean b, String msg) {
+        if (!b) {
+            throw new IllegalStateException("Shortest path check failed: " + msg);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package student;
+
+import bench.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Throughput benchmarks of priority queues shared by several threads. In each run,
+ * every thread adds OPS / threads elements with random priorities, polling one
+ * element after every second add and then polling until it has polled as many as
+ * it added. The parameter is the number of threads.
+ * <p>
+ * MultiQueue is compared with a PriorityQueueImpl that every thread locks for each
+ * operation, the only way the exact queues can be shared.
+ */
+public final class MultiQueueBenchmarks {
+
+    /**
+     * The number of elements added (and polled) in each run, over all threads.
+     */
+    static final int OPS = 1 << 16;
+
+    private MultiQueueBenchmarks() {
+    }
+
+    /**
+     * Return a benchmark of a MultiQueue with queuesPerThread heaps per thread.
+     */
+    public static Benchmark multiQueue(int queuesPerThread) {
+        return new ThroughputBenchmark() {
+            @Override
+            Supplier<Ops> queue(int threads) {
+                return () -> {
+                    MultiQueue<Integer> q = new MultiQueue<>(queuesPerThread * threads);
+                    return new Ops() {
+                        @Override
+                        public void add(Integer e, double p) {
+                            q.add(e, p);
+                        }
+
+                        @Override
+                        public Integer poll() {
+                            return q.poll();
+                        }
+                    };
+                };
+            }
+        };
+    }
+
+    /**
+     * Return a benchmark of a PriorityQueueImpl shared under one lock.
+     */
+    public static Benchmark lockedPriorityQueueImpl() {
+        return new ThroughputBenchmark() {
+            @Override
+            Supplier<Ops> queue(int threads) {
+                return () -> {
+                    PriorityQueueImpl<Integer> q = new PriorityQueueImpl<>();
+                    return new Ops() {
+                        @Override
+                        public synchronized void add(Integer e, double p) {
+                            q.add(e, p);
+                        }
+
+                        @Override
+                        public synchronized Integer poll() {
+                            return q.isEmpty() ? null : q.poll();
+                        }
+                    };
+                };
+            }
+        };
+    }
+
+    /**
+     * The operations the benchmarks use, on some thread-safe queue.
+     */
+    interface Ops {
+        void add(Integer e, double p);
+
+        Integer poll();
+    }
+
+    /**
+     * A benchmark of a queue made by queue, shared by a pool of threads made in setUp.
+     */
+    private abstract static class ThroughputBenchmark implements Benchmark {
+        private ExecutorService pool;
+        private int threads;
+        private Supplier<Ops> queues;
+
+        /**
+         * Return a source of empty queues to be shared by threads threads.
+         */
+        abstract Supplier<Ops> queue(int threads);
+
+        @Override
+        public void setUp(int n) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            threads = n;
+            queues = queue(n);
+            pool = Executors.newFixedThreadPool(n, (r) -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public long run() {
+            Ops q = queues.get();
+            int perThread = OPS / threads;
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                results.add(pool.submit(() -> {
+                    ThreadLocalRandom rand = ThreadLocalRandom.current();
+                    long acc = 0;
+                    int polled = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        q.add(base + i, rand.nextInt(1 << 20));
+                        if (i % 2 == 1) {
+                            Integer e = q.poll();
+                            if (e != null) {
+                                acc += e;
+                                polled++;
+                            }
+                        }
+                    }
+                    while (polled < perThread) {
+                        Integer e = q.poll();
+                        if (e == null) {
+                            break; // other threads took the rest
+                        }
+                        acc += e;
+                        polled++;
+                    }
+                    return acc;
+                }));
+            }
+            long acc = 0;
+            try {
+                for (Future<Long> f : results) {
+                    acc += f.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Benchmark failed", e);
+            }
+            return acc;
+        }
+    }
+}
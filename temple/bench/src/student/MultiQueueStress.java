@@ -0,0 +1,193 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A stress test of MultiQueue. Producer threads add elements and change their
+ * priorities while consumer threads poll, and afterwards every element must have
+ * been polled exactly once and the queue must be empty. Then the quality of the
+ * relaxation is measured: how far, on average, the rank of each element polled is
+ * from the lowest. Run this class with optional arguments: the number of producers,
+ * of consumers and of elements per producer. It prints a report and throws an
+ * exception if a check fails.
+ */
+public final class MultiQueueStress {
+
+    private MultiQueueStress() {
+    }
+
+    /**
+     * The main program.
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int producers = (args.length > 0 ? Integer.parseInt(args[0]) : 4);
+        int consumers = (args.length > 1 ? Integer.parseInt(args[1]) : 4);
+        int perProducer = (args.length > 2 ? Integer.parseInt(args[2]) : 100_000);
+
+        checkContract();
+        checkConcurrent(producers, consumers, perProducer);
+        measureRankError(16, 100_000);
+    }
+
+    /**
+     * Check that duplicates and missing elements are rejected, and that elements of
+     * priority +infinity are polled.
+     */
+    private static void checkContract() {
+        MultiQueue<Integer> q = new MultiQueue<>(4);
+        q.add(1, 1.0);
+        check(throwsIllegalArgument(() -> q.add(1, 2.0)), "adding a duplicate was accepted");
+        check(throwsIllegalArgument(() -> q.updatePriority(2, 2.0)), "updating a missing element was accepted");
+        q.updatePriority(1, 0.5);
+        check(q.poll() == 1 && q.poll() == null && q.size() == 0, "a one-element queue misbehaved");
+        // +infinity is a priority like any other: heaps holding only it are not empty
+        q.add(1, Double.POSITIVE_INFINITY);
+        q.add(2, Double.POSITIVE_INFINITY);
+        Integer first = q.poll();
+        Integer second = q.poll();
+        check(first != null && second != null && first + second == 3 && q.poll() == null && q.size() == 0,
+                "elements of priority +infinity were not polled");
+        System.out.println("contract   : ok");
+    }
+
+    /**
+     * Check that every element added by producers threads, perProducer each, while
+     * consumers threads poll is polled exactly once, and that size() never goes negative.
+     */
+    private static void checkConcurrent(int producers, int consumers, int perProducer)
+            throws InterruptedException, ExecutionException {
+        int n = producers * perProducer;
+        MultiQueue<Integer> q = new MultiQueue<>(2 * (producers + consumers));
+        AtomicIntegerArray polled = new AtomicIntegerArray(n);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(producers + consumers);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> adding = new ArrayList<>();
+            for (int t = 0; t < producers; t++) {
+                int base = t * perProducer;
+                adding.add(pool.submit(() -> {
+                    ThreadLocalRandom rand = ThreadLocalRandom.current();
+                    for (int i = 0; i < perProducer; i++) {
+                        q.add(base + i, rand.nextDouble());
+                        // change the priority of an earlier element, which may already be polled
+                        int e = base + rand.nextInt(i + 1);
+                        try {
+                            q.updatePriority(e, rand.nextDouble());
+                        } catch (IllegalArgumentException ex) {
+                            // it was polled
+                        }
+                    }
+                }));
+            }
+            List<Future<?>> consuming = new ArrayList<>();
+            for (int t = 0; t < consumers; t++) {
+                consuming.add(pool.submit(() -> {
+                    while (producing.get() || q.size() > 0) {
+                        check(q.size() >= 0, "size() went negative");
+                        Integer e = q.poll();
+                        if (e != null) {
+                            polled.incrementAndGet(e);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : adding) {
+                f.get();
+            }
+            producing.set(false);
+            for (Future<?> f : consuming) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (int e = 0; e < n; e++) {
+            check(polled.get(e) == 1, "element " + e + " was polled " + polled.get(e) + " times");
+        }
+        check(q.size() == 0 && q.poll() == null, "the queue is not empty at the end");
+        System.out.println(String.format("concurrent : ok, %d elements, %d producers, %d consumers, %.1f ms",
+                n, producers, consumers, elapsed / 1e6));
+    }
+
+    /**
+     * Add n elements with distinct random priorities to a MultiQueue of c heaps, poll
+     * them all on one thread, and print the mean and largest rank error: how many
+     * elements still in the queue had a lower priority than each one polled.
+     */
+    private static void measureRankError(int c, int n) {
+        MultiQueue<Integer> q = new MultiQueue<>(c);
+        Random rand = new Random(1);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        for (int i = 0; i < n; i++) {
+            q.add(order[i], order[i]); // element e has priority e
+        }
+
+        // rank error of e = number of elements < e still present; a Fenwick tree counts them
+        int[] tree = new int[n + 1];
+        for (int i = 1; i <= n; i++) {
+            tree[i]++;
+            int parent = i + (i & -i);
+            if (parent <= n) {
+                tree[parent] += tree[i];
+            }
+        }
+        long total = 0;
+        int max = 0;
+        for (int k = 0; k < n; k++) {
+            int e = q.poll();
+            int below = 0;
+            for (int i = e; i > 0; i -= i & -i) {
+                below += tree[i];
+            }
+            total += below;
+            max = Math.max(max, below);
+            for (int i = e + 1; i <= n; i += i & -i) {
+                tree[i]--;
+            }
+        }
+        System.out.println(String.format("rank error : mean %.2f, max %d, over %d polls from %d heaps",
+                (double) total / n, max, n, c));
+    }
+
+    /**
+     * Return true iff r throws an IllegalArgumentException.
+     */
+    private static boolean throwsIllegalArgument(Runnable r) {
+        try {
+            r.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Throw an IllegalStateException with message msg if b is false.
+     */
+    private static void check(boolean b, String msg) {
+        if (!b) {
+            throw new IllegalStateException("MultiQueue stress test failed: " + msg);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A randomized test of PairingHeap against PriorityQueueImpl. Random sequences of
+ * add, poll, peek, contains and updatePriority (lowering and raising priorities of
+ * the root and of other elements, which exercises cut and mergePairs) are applied
+ * to both queues, which must agree after every operation. A second check uses few
+ * distinct priorities, where the two queues may break ties differently, and checks
+ * PairingHeap against a map of the priorities instead. Run this class with optional
+ * arguments: the number of runs and of operations per run. It prints a report and
+ * throws an exception if a check fails.
+ */
+public final class PairingHeapCheck {
+
+    private PairingHeapCheck() {
+    }
+
+    /**
+     * The main program.
+     */
+    public static void main(String[] args) {
+        int runs = (args.length > 0 ? Integer.parseInt(args[0]) : 200);
+        int ops = (args.length > 1 ? Integer.parseInt(args[1]) : 5_000);
+
+        checkContract();
+        for (int seed = 0; seed < runs; seed++) {
+            checkAgainstImpl(seed, ops);
+        }
+        System.out.println(String.format("vs impl    : ok, %d runs of %d operations", runs, ops));
+        for (int seed = 0; seed < runs; seed++) {
+            checkTies(seed, ops);
+        }
+        System.out.println(String.format("ties       : ok, %d runs of %d operations", runs, ops));
+        checkLongSiblingList(200_000);
+    }
+
+    /**
+     * Check that duplicates, missing elements and polling an empty heap are rejected,
+     * and that addAll and updatePriorities leave the heap unchanged when they reject.
+     */
+    private static void checkContract() {
+        PairingHeap<Integer> q = new PairingHeap<>();
+        check(throwsEmpty(q::poll) && throwsEmpty(q::peek), "an empty heap did not throw");
+        q.add(1, 1.0);
+        check(throwsIllegalArgument(() -> q.add(1, 2.0)), "adding a duplicate was accepted");
+        check(throwsIllegalArgument(() -> q.updatePriority(2, 2.0)), "updating a missing element was accepted");
+        q.updatePriority(1, 3.0);
+        check(q.peek() == 1 && q.poll() == 1 && q.size() == 0 && !q.contains(1), "a one-element heap misbehaved");
+        q.add(1, 1.0);
+        check(throwsIllegalArgument(() -> q.addAll(Arrays.asList(2, 1), new double[]{2.0, 3.0}))
+                && q.size() == 1 && !q.contains(2), "a failed addAll changed the heap");
+        check(throwsIllegalArgument(() -> q.updatePriorities(Arrays.asList(1, 2), new double[]{0.0, 0.0}))
+                && q.poll() == 1 && q.size() == 0, "a failed updatePriorities changed the heap");
+        System.out.println("contract   : ok");
+    }
+
+    /**
+     * Apply ops random operations, from the given seed, to a PairingHeap and a
+     * PriorityQueueImpl with distinct priorities, checking that they agree after
+     * each one, and then poll both empty.
+     */
+    private static void checkAgainstImpl(long seed, int ops) {
+        Random rand = new Random(seed);
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        PriorityQueueImpl<Integer> impl = new PriorityQueueImpl<>();
+        List<Integer> present = new ArrayList<>();
+        int next = 0;
+
+        for (int i = 0; i < ops; i++) {
+            int op = rand.nextInt(10);
+            if (op < 4 || present.isEmpty()) {
+                double p = rand.nextDouble();
+                heap.add(next, p);
+                impl.add(next, p);
+                present.add(next);
+                next++;
+            } else if (op < 6) {
+                Integer e = heap.poll();
+                check(e.equals(impl.poll()), "poll differs from PriorityQueueImpl (seed " + seed + ")");
+                present.remove(e);
+            } else if (op < 9) {
+                // lower or raise a random element, which is sometimes the root
+                Integer e = (op == 8 ? impl.peek() : present.get(rand.nextInt(present.size())));
+                double p = rand.nextDouble();
+                heap.updatePriority(e, p);
+                impl.updatePriority(e, p);
+            } else {
+                int e = rand.nextInt(next + 1);
+                check(heap.contains(e) == impl.contains(e), "contains differs (seed " + seed + ")");
+            }
+            check(heap.size() == impl.size(), "size differs (seed " + seed + ")");
+            if (heap.size() > 0) {
+                check(heap.peek().equals(impl.peek()), "peek differs (seed " + seed + ")");
+            }
+        }
+        while (impl.size() > 0) {
+            check(heap.poll().equals(impl.poll()), "draining differs (seed " + seed + ")");
+        }
+        check(heap.size() == 0 && throwsEmpty(heap::poll), "the heap is not empty at the end");
+    }
+
+    /**
+     * Apply ops random operations, from the given seed, to a PairingHeap whose
+     * priorities are small integers, checking that every element polled has the
+     * lowest priority of those present.
+     */
+    private static void checkTies(long seed, int ops) {
+        Random rand = new Random(seed);
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        Map<Integer, Double> priorities = new HashMap<>();
+        List<Integer> present = new ArrayList<>();
+        int next = 0;
+
+        for (int i = 0; i < ops; i++) {
+            int op = rand.nextInt(10);
+            if (op < 4 || present.isEmpty()) {
+                double p = rand.nextInt(8);
+                heap.add(next, p);
+                priorities.put(next, p);
+                present.add(next);
+                next++;
+            } else if (op < 6) {
+                double min = priorities.values().stream().mapToDouble(Double::doubleValue).min().getAsDouble();
+                Integer e = heap.poll();
+                Double p = priorities.remove(e);
+                check(p != null && p == min, "polled a priority above the lowest (seed " + seed + ")");
+                present.remove(e);
+            } else {
+                Integer e = (op == 9 ? heap.peek() : present.get(rand.nextInt(present.size())));
+                double p = rand.nextInt(8);
+                heap.updatePriority(e, p);
+                priorities.put(e, p);
+            }
+            check(heap.size() == priorities.size(), "size is wrong (seed " + seed + ")");
+        }
+    }
+
+    /**
+     * Add n elements in decreasing order of priority, so the root's children form one
+     * long sibling list, and poll them all; mergePairs must not overflow the stack.
+     */
+    private static void checkLongSiblingList(int n) {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        heap.add(-1, -1.0);
+        for (int i = n - 1; i >= 0; i--) {
+            heap.add(i, i);
+        }
+        check(heap.poll() == -1, "the root was not polled first");
+        for (int i = 0; i < n; i++) {
+            check(heap.poll() == i, "elements were polled out of order");
+        }
+        System.out.println(String.format("long list  : ok, %d siblings", n));
+    }
+
+    /**
+     * Return true iff r throws a PriorityQueueException.
+     */
+    private static boolean throwsEmpty(Runnable r) {
+        try {
+            r.run();
+            return false;
+        } catch (PriorityQueueException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Return true iff r throws an IllegalArgumentException.
+     */
+    private static boolean throwsIllegalArgument(Runnable r) {
+        try {
+            r.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Throw an IllegalStateException with message msg if b is false.
+     */
+    private static void check(boolean b, String msg) {
+        if (!b) {
+            throw new IllegalStateException("PairingHeap check failed: " + msg);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package student;
+
+import bench.Benchmark;
+import game.BenchCaverns;
+import game.Cavern;
+import game.Tile;
+
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks of AStar finding the shortest escape route, from the orb to the exit of
+ * an escape cavern, with each kind of priority queue. The parameter is the number
+ * of rows of the cavern.
+ */
+public final class SearchBenchmarks {
+
+    private SearchBenchmarks() {
+    }
+
+    /**
+     * Return a benchmark of AStar with its DistanceHeap.
+     */
+    public static Benchmark aStar() {
+        return aStar(null);
+    }
+
+    /**
+     * Return a benchmark of AStar with queues from queues.
+     */
+    public static Benchmark aStar(Supplier<PriorityQueue<Integer>> queues) {
+        return new Benchmark() {
+            private EscapeGraph graph;
+            private AStar search;
+
+            @Override
+            public void setUp(int rows) {
+                Cavern[] pair = BenchCaverns.pair(rows, 1);
+                Tile orb = pair[0].getTarget().getTile();
+                Cavern escape = pair[1];
+                graph = new EscapeGraph(escape.getGraph(), escape.getNodeAt(orb.getRow(), orb.getColumn()),
+                        escape.getTarget());
+                search = new AStar(graph, queues);
+            }
+
+            @Override
+            public long run() {
+                return search.route(graph.start, graph.exit).length();
+            }
+        };
+    }
+}
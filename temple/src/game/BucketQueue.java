@@ -0,0 +1,113 @@
+package game;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An instance is a monotone priority queue (Dial's bucket queue) of int keys
+ * in 0..capacity-1 with non-negative int priorities.
+ * It relies on two facts that hold for Dijkstra's algorithm with edge weights
+ * in 0..maxStep: the priority of every key in the queue is within maxStep of
+ * the last priority polled, and priorities never go below it. The queue is
+ * then a ring of maxStep + 1 buckets, each a doubly-linked list threaded
+ * through primitive arrays, so every operation but poll takes constant time
+ * and poll takes O(maxStep) time at worst.
+ */
+final class BucketQueue {
+
+    private final int[] heads;  // heads[b] is the first key in bucket b, or -1
+    private final int[] next;   // next[k] is the key after k in its bucket, or -1
+    private final int[] prev;   // prev[k] is the key before k in its bucket, or -1
+    private final int[] priority;
+
+    private int size;
+    private int cursor; // no key in the queue has priority < cursor
+
+    /**
+     * Constructor: an empty queue for keys 0..capacity-1 and edges of length at most maxStep.
+     */
+    BucketQueue(int capacity, int maxStep) {
+        heads = new int[maxStep + 1];
+        Arrays.fill(heads, -1);
+        next = new int[capacity];
+        prev = new int[capacity];
+        priority = new int[capacity];
+    }
+
+    /**
+     * Return true iff the queue is empty.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add key k with priority p.
+     * Precondition: k is not in the queue and cursor <= p <= cursor + maxStep,
+     * where cursor is the priority of the last key polled (initially 0).
+     */
+    void add(int k, int p) {
+        priority[k] = p;
+        link(k);
+        size++;
+    }
+
+    /**
+     * Lower the priority of key k to p.
+     * Precondition: k is in the queue and cursor <= p <= its current priority.
+     */
+    void decreasePriority(int k, int p) {
+        unlink(k);
+        priority[k] = p;
+        link(k);
+    }
+
+    /**
+     * Remove and return a key with lowest priority.
+     * Throw a NoSuchElementException if the queue is empty.
+     */
+    int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int b = cursor % heads.length;
+        while (heads[b] < 0) {
+            cursor++;
+            b = (b + 1 == heads.length ? 0 : b + 1);
+        }
+        int k = heads[b];
+        unlink(k);
+        size--;
+        return k;
+    }
+
+    /**
+     * Insert k at the front of the bucket for its priority.
+     */
+    private void link(int k) {
+        int b = priority[k] % heads.length;
+        int h = heads[b];
+        next[k] = h;
+        prev[k] = -1;
+        if (h >= 0) {
+            prev[h] = k;
+        }
+        heads[b] = k;
+    }
+
+    /**
+     * Remove k from the bucket for its priority.
+     */
+    private void unlink(int k) {
+        int p = prev[k];
+        int n = next[k];
+        if (p >= 0) {
+            next[p] = n;
+        } else {
+            heads[priority[k] % heads.length] = n;
+        }
+        if (n >= 0) {
+            prev[n] = p;
+        }
+    }
+}
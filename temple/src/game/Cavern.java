@@ -1,110 +1,321 @@
 package game;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.IntSupplier;
 
 /**
  * An instance represents a Cavern that the explorer can navigate through.
  * The cavern is set up as a grid of Tile objects with a weighted graph of all non-floor tiles.
  * There is an entrance to the cavern and a target location (which may also be the entrance).
+ * <p>
+ * Caverns of any size that fits the grid (see MAX_CELLS) can be generated, and the memory
+ * a cavern uses is proportional to its number of open tiles: walls are not stored but
+ * created whenever they are asked for. The budget is 4 bytes per grid cell (the
+ * cell-to-node index) plus, per open tile, about 64 bytes for its Node and Tile,
+ * 8 bytes for each of its (on average about 3.3) exits and 24 bytes of CSR offset,
+ * direction slots and distance field: with the usual 60% of cells open, about 125 bytes
+ * per open tile in all. The Edge objects of getExits() add about 90 bytes per open tile once they
+ * are first asked for.
  */
 public class Cavern {
 
     public static final int MAX_EDGE_WEIGHT = 15;
     public static final int MAX_GOLD_VALUE = 1000;
     public static final int TASTY_VALUE = 5000;
+    /**
+     * The largest number of grid cells (rows * cols) a cavern can have.
+     */
+    public static final int MAX_CELLS = Integer.MAX_VALUE / 2;
+    /**
+     * The number of candidate caverns generated at once in GenerationMode.PARALLEL.
+     * It is fixed, not the number of processors, so that a seed gives the same
+     * caverns on every machine.
+     */
+    public static final int PARALLEL_CANDIDATES = 4;
     private static final double DENSITY = 0.6;
     private static final double GOLD_PROBABILITY = 0.33;
+    private static final Direction[] DIRECTIONS = Direction.values();
     private final int rows;
     private final int cols;
-    private final Set<Node> graph;
+    private final CavernGraph graph;
+    private final Set<Node> graphNodes;
     private final Node entrance;
     private final Node target;
-    private final Node[][] tiles;
+
+    /**
+     * cells[r * cols + c] is the index of the open node at (r, c), or -1 if (r, c) is a wall.
+     */
+    private final int[] cells;
+
+    /**
+     * distancesToTarget[i] is the length of a shortest path from the node with
+     * index i to the target. It is computed the first time it is needed.
+     */
+    private volatile int[] distancesToTarget;
+
+    /**
+     * gridDistancesToTarget[i] is the number of rows plus the number of columns between
+     * the node with index i and the target. It is computed the first time it is needed.
+     */
+    private volatile int[] gridDistancesToTarget;
 
     /**
      * Constructor: an instance of size (rws, cls) .
      * Use rand as a source of randomness for the cavern generation.
      * Use {@code edgeWeightGenerator} and {@code goldGenerator} to generate edge weights and gold values.
-     * Precondition: {@code targetType} must be either {@code Tile.Type.ORB} or {@code Tile.Type.ENTRANCE}.
+     * If minTargetDistance is 0, the target is any node; otherwise it is chosen among the
+     * nodes at least that far from the entrance, and is null if there are none.
+     * If requiredCell is not -1, that cell is made open if it is not already, by carving
+     * floor from it to the nearest open cell.
+     * Record the retries that these constraints avoid in stats, if it is not null.
+     * Precondition: {@code targetType} must be either {@code Tile.Type.ORB} or {@code Tile.Type.ENTRANCE},
+     * and requiredCell, if given, is not on the edge of the grid.
      */
     private Cavern(int rws,
                    int cls,
                    Random rand,
-                   Supplier<Integer> edgeWeightGenerator,
-                   Supplier<Integer> goldGenerator,
-                   Tile.Type targetType) {
+                   IntSupplier edgeWeightGenerator,
+                   IntSupplier goldGenerator,
+                   Tile.Type targetType,
+                   int minTargetDistance,
+                   int requiredCell,
+                   GenerationStats stats) {
         rows = rws;
         cols = cls;
 
-        graph = generateGraph(rand, targetType, goldGenerator);
-
-        entrance = graph.stream().filter((n) -> n.getTile().getType() == Tile.Type.ENTRANCE).findAny().get();
-
-        target = graph.stream().filter((n) -> n.getTile().getType() == targetType).findAny().get();
+        CavernGraph.Builder builder = new CavernGraph.Builder();
+        NodeIdAllocator ids = new NodeIdAllocator();
+        // With a minimum distance, the target is chosen once distances are known.
+        Tile.Type randomTargetType = (minTargetDistance > 0 ? Tile.Type.ENTRANCE : targetType);
+        for (Node node : generateGraph(rand, randomTargetType, goldGenerator, ids)) {
+            builder.add(node);
+        }
 
-        // Set tiles for the floor and then add walls wherever floor is missing.
-        tiles = new Node[rows][cols];
-        for (Node node : graph) {
+        // Record the cells of the floor and add the edges between them;
+        // every other cell is a wall.
+        cells = newCells(rows, cols);
+        Node ent = null;
+        Node trgt = null;
+        for (Node node : builder.nodes()) {
             Tile t = node.getTile();
-            tiles[t.getRow()][t.getColumn()] = node;
+            cells[t.getRow() * cols + t.getColumn()] = node.index;
+            if (t.getType() == Tile.Type.ENTRANCE) {
+                ent = node;
+            }
+            if (t.getType() == randomTargetType) {
+                trgt = node;
+            }
         }
+        entrance = ent;
 
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (tiles[i][j] == null) {
-                    tiles[i][j] = new Node(new Tile(i, j, 0, Tile.Type.WALL));
-                }
+        if (requiredCell >= 0 && cells[requiredCell] < 0) {
+            if (stats != null) {
+                // Rejection would have thrown this candidate away.
+                stats.recordRetriesAvoided(1);
             }
+            carveFloor(requiredCell, builder, goldGenerator, ids);
+        }
+
+        createEdges(builder, edgeWeightGenerator);
+        graph = builder.build();
+        graphNodes = graph.nodeSet();
+
+        if (minTargetDistance > 0) {
+            trgt = chooseTarget(targetType, minTargetDistance, rand, stats);
         }
-        createEdges(tiles, edgeWeightGenerator);
+        target = trgt;
     }
 
     /**
-     * Constructor: an instance using givenGraph, givenTiles, and target trgt.
+     * Constructor: an instance of size (rws, cls) using givenGraph, with entrance ent and target trgt.
+     * Every grid cell without a node in {@code givenGraph} is a wall.
      * Preconditions:
-     * 1. {@code givenGraph} and {@code givenTiles} represent the same graph
-     * (i.e. {@code givenGraph} contains all non-floor nodes in
-     * {@code givenTiles} and edges are along the grid).
-     * 2. {@code trgt} is a node in {@code givenGraph}.
+     * 1. The tiles of the nodes in {@code givenGraph} are distinct cells of the grid
+     * and its edges are along the grid.
+     * 2. {@code ent} and {@code trgt} are nodes in {@code givenGraph}.
      */
-    private Cavern(Set<Node> givenGraph, Node[][] givenTiles, Node trgt) {
-        tiles = givenTiles;
-        rows = tiles.length;
-        cols = tiles[0].length;
+    private Cavern(int rws, int cls, CavernGraph givenGraph, Node ent, Node trgt) {
+        rows = rws;
+        cols = cls;
 
-        graph = Collections.unmodifiableSet(givenGraph);
+        graph = givenGraph;
+        graphNodes = graph.nodeSet();
 
-        entrance = graph.stream().filter((n) -> n.getTile().getType() == Tile.Type.ENTRANCE).findAny().get();
+        cells = newCells(rows, cols);
+        for (int i = 0; i < graph.size(); i++) {
+            Tile t = graph.node(i).getTile();
+            cells[t.getRow() * cols + t.getColumn()] = i;
+        }
 
+        entrance = ent;
         target = trgt;
     }
 
+    /**
+     * Return a cell-to-node index for a grid of size (rows, cols) in which every cell is a wall.
+     * Throw an IllegalArgumentException if the grid has more than MAX_CELLS cells.
+     */
+    private static int[] newCells(int rows, int cols) {
+        long n = (long) rows * cols;
+        if (n > MAX_CELLS) {
+            throw new IllegalArgumentException("A cavern of " + rows + " x " + cols + " cells is too large");
+        }
+        int[] cells = new int[(int) n];
+        Arrays.fill(cells, -1);
+        return cells;
+    }
+
+    /**
+     * Throw an IllegalArgumentException if no cavern of size (rows, cols) can be generated.
+     */
+    private static void checkSize(int rows, int cols) {
+        if (rows < 3 || cols < 3 || (long) rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Cannot generate a cavern of " + rows + " x " + cols + " cells");
+        }
+    }
+
+    /**
+     * Open the shortest passage of interior cells from cell start to the nearest open cell,
+     * adding a floor node with generated gold to builder for every cell opened.
+     * Precondition: start is an interior cell that is not open.
+     */
+    private void carveFloor(int start, CavernGraph.Builder builder, IntSupplier goldGenerator, NodeIdAllocator ids) {
+        // Breadth-first search from start; toward.get(c) is the cell one step closer to start.
+        Map<Integer, Integer> toward = new HashMap<>();
+        Queue<Integer> frontier = new ArrayDeque<>();
+        toward.put(start, -1);
+        frontier.add(start);
+        int reached = -1;
+        while (reached < 0) {
+            int cell = frontier.remove();
+            int row = cell / cols;
+            int col = cell - row * cols;
+            for (Direction dir : DIRECTIONS) {
+                int r = row + dir.dir.row;
+                int c = col + dir.dir.col;
+                int q = r * cols + c;
+                if (r > 0 && r < rows - 1 && c > 0 && c < cols - 1 && !toward.containsKey(q)) {
+                    toward.put(q, cell);
+                    if (cells[q] >= 0) {
+                        reached = q;
+                        break;
+                    }
+                    frontier.add(q);
+                }
+            }
+        }
+
+        for (int cell = toward.get(reached); cell >= 0; cell = toward.get(cell)) {
+            Node node = new Node(ids.next(), new Tile(cell / cols, cell % cols, goldGenerator.getAsInt(), Tile.Type.FLOOR));
+            cells[cell] = builder.add(node);
+        }
+    }
+
+    /**
+     * Make a node chosen uniformly at random among those at least minDistance from the
+     * entrance have type targetType, and return it (null if there is no such node).
+     * Record the retries this avoided in stats, if it is not null.
+     * Precondition: graph has been built.
+     */
+    private Node chooseTarget(Tile.Type targetType, int minDistance, Random rand, GenerationStats stats) {
+        int[] dist = new int[graph.size()];
+        ShortestPaths.search(graph, entrance.index, -1, dist, null);
+        int far = 0;
+        for (int d : dist) {
+            if (d >= minDistance) {
+                far++;
+            }
+        }
+        if (far == 0) {
+            return null;
+        }
+        if (stats != null) {
+            // Rejection picks any node but the entrance, so it would have thrown
+            // this candidate away with this probability.
+            stats.recordRetriesAvoided(1 - far / (double) (graph.size() - 1));
+        }
+
+        int pick = rand.nextInt(far);
+        for (int i = 0; ; i++) {
+            if (dist[i] >= minDistance && pick-- == 0) {
+                Node node = graph.node(i);
+                node.getTile().setType(targetType);
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Return a Cavern of size (rows, cols) over graph, with entrance ent and target trgt.
+     * Preconditions: as for the corresponding constructor.
+     */
+    static Cavern fromGraph(int rows, int cols, CavernGraph graph, Node ent, Node trgt) {
+        return new Cavern(rows, cols, graph, ent, trgt);
+    }
+
     /**
      * Return a new random Cavern of size (rows, cols) with no gold.
      * All edges have weight 1, and an orb is a  reasonable distancefrom the exit.
      * Use rand as a source of randomness for the cavern generation.
      */
     public static Cavern digExploreCavern(int rows, int cols, Random rand) {
+        return digExploreCavern(rows, cols, rand, GenerationMode.REJECTION, null);
+    }
+
+    /**
+     * Return a new random Cavern as digExploreCavern(rows, cols, rand) does, meeting the
+     * constraint on the distance to the orb in the given mode.
+     * Record the work done in stats, if it is not null.
+     */
+    public static Cavern digExploreCavern(int rows, int cols, Random rand,
+                                          GenerationMode mode, GenerationStats stats) {
+        checkSize(rows, cols);
         int minOrbDist = minOrbDistance(rows, cols);
 
-        Cavern cavern = new Cavern(rows, cols, rand, () -> 1, () -> 0, Tile.Type.ORB);
-        while (cavern.minPathLengthToTarget(cavern.getEntrance()) < minOrbDist) {
-            cavern = new Cavern(rows, cols, rand, () -> 1, () -> 0, Tile.Type.ORB);
+        if (mode == GenerationMode.PARALLEL) {
+            return SpeculativeGeneration.firstAccepted(rand, PARALLEL_CANDIDATES, (seed) -> {
+                Cavern cavern = new Cavern(rows, cols, new Random(seed), () -> 1, () -> 0,
+                        Tile.Type.ORB, 0, -1, null);
+                return (cavern.minPathLengthToTarget(cavern.getEntrance()) >= minOrbDist ? cavern : null);
+            }, stats);
+        }
+
+        while (true) {
+            Cavern cavern;
+            boolean accepted;
+            if (mode == GenerationMode.CONSTRUCTIVE) {
+                cavern = new Cavern(rows, cols, rand, () -> 1, () -> 0, Tile.Type.ORB, minOrbDist, -1, stats);
+                accepted = cavern.getTarget() != null;
+            } else {
+                cavern = new Cavern(rows, cols, rand, () -> 1, () -> 0, Tile.Type.ORB, 0, -1, stats);
+                accepted = cavern.minPathLengthToTarget(cavern.getEntrance()) >= minOrbDist;
+            }
+            if (stats != null) {
+                stats.recordCandidate(accepted);
+            }
+            if (accepted) {
+                return cavern;
+            }
         }
-        return cavern;
     }
 
     /**
@@ -120,13 +331,42 @@ public class Cavern {
      * Use rand as a source of randomness for the cavern generation.
      */
     public static Cavern digEscapeCavern(int rows, int cols, int currentRow, int currentCol, Random rand) {
-        Supplier<Integer> edgeWeightGen = () -> rand.nextInt(MAX_EDGE_WEIGHT) + 1;
-        Supplier<Integer> goldGen = () -> Cavern.generateGoldValue(rand);
-        Cavern potentialCavern = new Cavern(rows, cols, rand, edgeWeightGen, goldGen, Tile.Type.ENTRANCE);
-        while (potentialCavern.getTileAt(currentRow, currentCol).getType() != Tile.Type.FLOOR) {
-            potentialCavern = new Cavern(rows, cols, rand, edgeWeightGen, goldGen, Tile.Type.ENTRANCE);
+        return digEscapeCavern(rows, cols, currentRow, currentCol, rand, GenerationMode.REJECTION, null);
+    }
+
+    /**
+     * Return a new random Cavern as digEscapeCavern(rows, cols, currentRow, currentCol, rand)
+     * does, making (currentRow, currentCol) open floor in the given mode.
+     * Record the work done in stats, if it is not null.
+     * Precondition: (currentRow, currentCol) is not on the edge of the grid.
+     */
+    public static Cavern digEscapeCavern(int rows, int cols, int currentRow, int currentCol, Random rand,
+                                         GenerationMode mode, GenerationStats stats) {
+        checkSize(rows, cols);
+        if (mode == GenerationMode.PARALLEL) {
+            return SpeculativeGeneration.firstAccepted(rand, PARALLEL_CANDIDATES, (seed) -> {
+                Random r = new Random(seed);
+                Cavern cavern = new Cavern(rows, cols, r, () -> r.nextInt(MAX_EDGE_WEIGHT) + 1,
+                        () -> Cavern.generateGoldValue(r), Tile.Type.ENTRANCE, 0, -1, null);
+                return (cavern.getTileAt(currentRow, currentCol).getType() == Tile.Type.FLOOR ? cavern : null);
+            }, stats);
+        }
+
+        IntSupplier edgeWeightGen = () -> rand.nextInt(MAX_EDGE_WEIGHT) + 1;
+        IntSupplier goldGen = () -> Cavern.generateGoldValue(rand);
+        int required = (mode == GenerationMode.CONSTRUCTIVE ? currentRow * cols + currentCol : -1);
+
+        while (true) {
+            Cavern potentialCavern = new Cavern(rows, cols, rand, edgeWeightGen, goldGen,
+                    Tile.Type.ENTRANCE, 0, required, stats);
+            boolean accepted = potentialCavern.getTileAt(currentRow, currentCol).getType() == Tile.Type.FLOOR;
+            if (stats != null) {
+                stats.recordCandidate(accepted);
+            }
+            if (accepted) {
+                return potentialCavern;
+            }
         }
-        return potentialCavern;
     }
 
     /**
@@ -149,95 +389,86 @@ public class Cavern {
      * Precondition: The list of strings is of the format output by {@code serialize()}.
      */
     public static Cavern deserialize(List<String> nodeStrList) {
-        String extraInfo = nodeStrList.get(0);
-        String[] infoParts = extraInfo.split(",");
-        String[] dimensions = infoParts[0].split(":");
-        int rows = Integer.parseInt(dimensions[0]);
-        int cols = Integer.parseInt(dimensions[1]);
-        long targetId = Long.parseLong(infoParts[1].split(":")[1]);
-
-        Map<Long, Node> idToNode = new HashMap<>();
-        for (String nodeStr : nodeStrList) {
-            if (!nodeStr.equals(extraInfo)) {
-
-                String nodeInfo = nodeStr.substring(0, nodeStr.indexOf("="));
-                String[] splitInfo = nodeInfo.split(",");
-
-                long nodeId = Long.parseLong(splitInfo[0]);
-                Node n = new Node(nodeId,
-                        new Tile(Integer.parseInt(splitInfo[1]),
-                                Integer.parseInt(splitInfo[2]),
-                                Integer.parseInt(splitInfo[3]),
-                                Tile.Type.valueOf(splitInfo[4])));
-                idToNode.put(nodeId, n);
-            }
+        try {
+            return CavernTextFormat.read(new StringReader(String.join("\n", nodeStrList)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        Node[][] tiles = new Node[rows][cols];
-        for (String nodeStr : nodeStrList) {
-            // The first line is not a node, it's metadata, so skip it.
-            if (nodeStr.equals(extraInfo)) {
-                continue;
-            }
+    /**
+     * Read a cavern in the format output by {@code serialize()} from in and return it.
+     * The text is parsed in a single pass as it is read.
+     * Throw an IllegalArgumentException if the text is not in that format.
+     */
+    public static Cavern deserialize(Reader in) throws IOException {
+        return CavernTextFormat.read(in);
+    }
+
+    /**
+     * Read a cavern in the format output by {@code serialize()} from channel and return it.
+     * The text is parsed in a single pass as it is read.
+     * Throw an IllegalArgumentException if the text is not in that format.
+     */
+    public static Cavern deserialize(ReadableByteChannel channel) throws IOException {
+        return CavernTextFormat.read(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
 
-            String[] nodeAndEdgeInfo = nodeStr.split("=");
-            long nodeId = Long.parseLong(nodeAndEdgeInfo[0].split(",")[0]);
+    /**
+     * Read the binary cavern file at path (as written by {@code writeBinary()}) and return it.
+     * Throw an IOException if the file cannot be read or is not a binary cavern file.
+     */
+    public static Cavern readBinary(Path path) throws IOException {
+        return CavernBinaryFormat.read(path);
+    }
 
-            Node n = idToNode.get(nodeId);
-            tiles[n.getTile().getRow()][n.getTile().getColumn()] = n;
-            for (String edgeStr : nodeAndEdgeInfo[1].split(",")) {
-                String[] idAndWeight = edgeStr.split("-");
-                long otherId = Long.parseLong(idAndWeight[0]);
-                int weight = Integer.parseInt(idAndWeight[1]);
-                n.addEdge(new Edge(n, idToNode.get(otherId), weight));
-            }
+    /**
+     * Read the cavern file at path, which may be either in the binary format written by
+     * {@code writeBinary()} or in the text format of {@code serialize()}, and return it.
+     */
+    public static Cavern load(Path path) throws IOException {
+        if (CavernBinaryFormat.isBinary(path)) {
+            return CavernBinaryFormat.read(path);
         }
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (tiles[i][j] == null) {
-                    tiles[i][j] = new Node(new Tile(i, j, 0, Tile.Type.WALL));
-                }
-            }
+        try (Reader in = Files.newBufferedReader(path)) {
+            return CavernTextFormat.read(in);
         }
-        return new Cavern(new HashSet<>(idToNode.values()), tiles, idToNode.get(targetId));
     }
 
     /**
-     * Add edges to the grid of nodes, tiles, between adjacent non-wall tiles,
-     * using edgeWeightGenerator to get edge weights.
-     * Precondition: all elements of {@code tiles} are non-null and
-     * the grid of nodes has no edges.
+     * Add edges between adjacent open cells of the grid to builder, using
+     * edgeWeightGenerator to get edge weights.
+     * Precondition: cells records every node of {@code builder}, and builder has no edges.
      */
-    private void createEdges(Node[][] tiles, Supplier<Integer> edgeWeightGenerator) {
-        for (int i = 0; i < tiles.length - 1; i++) {
-            for (int j = 0; j < tiles[i].length - 1; j++) {
-                Node node = tiles[i][j];
-                if (node.getTile().getType() == Tile.Type.WALL) {
+    private void createEdges(CavernGraph.Builder builder, IntSupplier edgeWeightGenerator) {
+        List<Node> nodes = builder.nodes();
+        for (int i = 0; i < rows - 1; i++) {
+            for (int j = 0; j < cols - 1; j++) {
+                int c = i * cols + j;
+                if (cells[c] < 0) {
                     continue;
                 }
-
-                final Point p = new Point(i, j);
-                Stream.of(Direction.SOUTH, Direction.EAST)
-                        .map(Direction::getPoint)
-                        .map(p::add)
-                        .map((q) -> tiles[q.row][q.col])
-                        .filter((m) -> m.getTile().getType() != Tile.Type.WALL)
-                        .forEach((m) -> {
-                            int weight = edgeWeightGenerator.get();
-                            node.addEdge(new Edge(node, m, weight));
-                            m.addEdge(new Edge(m, node, weight));
-                        });
+                // South first, then east: this is the order the weights are drawn in.
+                connect(builder, nodes, c, c + cols, edgeWeightGenerator);
+                connect(builder, nodes, c, c + 1, edgeWeightGenerator);
             }
         }
     }
 
     /**
-     * Return true iff p is on the grid
+     * If cell d is open, add a pair of edges of the same generated weight between
+     * the nodes of cells c and d to builder.
+     * Precondition: cell c is open.
      */
-    private boolean isValid(Point p) {
-        return p.row > 0 && p.row < rows - 1 &&
-                p.col > 0 && p.col < cols - 1;
+    private void connect(CavernGraph.Builder builder, List<Node> nodes, int c, int d,
+                         IntSupplier edgeWeightGenerator) {
+        if (cells[d] >= 0) {
+            Node node = nodes.get(cells[c]);
+            Node m = nodes.get(cells[d]);
+            int weight = edgeWeightGenerator.getAsInt();
+            builder.addEdge(node, m, weight);
+            builder.addEdge(m, node, weight);
+        }
     }
 
     /**
@@ -245,61 +476,77 @@ public class Cavern {
      * Use goldGenerator to generate gold.
      * If targetType is not ENTRANCE, make the target be some random node that is
      * not the entrance.
+     * The entrance is the first node of the returned list.
+     * Use ids to number the nodes, in the order of the returned list.
+     * <p>
+     * Cells are numbered row * cols + col. The cells seen and opened so far are kept
+     * in bitsets, and the queue of cells still to be expanded is the list of opened
+     * cells itself, since cells are expanded in the order they are opened.
      */
-    private Set<Node> generateGraph(Random rand,
-                                    Tile.Type targetType,
-                                    Supplier<Integer> goldGenerator) {
+    private List<Node> generateGraph(Random rand,
+                                     Tile.Type targetType,
+                                     IntSupplier goldGenerator,
+                                     NodeIdAllocator ids) {
         List<Node> nodes = new ArrayList<>();
 
-        Set<Point> pointsSeen = new HashSet<>();
-        Set<Point> openPoints = new HashSet<>();
-        Queue<Node> frontier = new ArrayDeque<>();
+        long[] seen = new long[(rows * cols + 63) >>> 6];
+        long[] open = new long[seen.length];
+        int[] frontier = new int[64];
+        int[] newExits = new int[DIRECTIONS.length];
 
-        Point entrancePoint = getEntrancePoint(rand);
-        Node entrance = new Node(new Tile(entrancePoint.row, entrancePoint.col, 0, Tile.Type.ENTRANCE));
-        nodes.add(entrance);
+        int entranceCell = getEntranceCell(rand);
+        nodes.add(new Node(ids.next(), new Tile(entranceCell / cols, entranceCell % cols, 0, Tile.Type.ENTRANCE)));
 
-        pointsSeen.add(entrancePoint);
-        openPoints.add(entrancePoint);
-        frontier.add(entrance);
-        while (!frontier.isEmpty()) {
-            Node node = frontier.remove();
-            Point p = new Point(node.getTile().getRow(), node.getTile().getColumn());
+        setBit(seen, entranceCell);
+        setBit(open, entranceCell);
+        frontier[0] = entranceCell;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int cell = frontier[head];
+            int row = cell / cols;
+            int col = cell - row * cols;
 
             // We want to make sure there's a way out if we can get one.
             // This will prevent stupid degenerate graphs.
             int existingExits = 0;
-            List<Point> newExits = new ArrayList<>();
-            for (Direction dir : Direction.values()) {
-                Point newPt = dir.getPoint().add(p);
-                if (isValid(newPt)) {
-                    if (openPoints.contains(newPt)) {
+            int nExits = 0;
+            for (Direction dir : DIRECTIONS) {
+                int r = row + dir.dir.row;
+                int c = col + dir.dir.col;
+                if (r > 0 && r < rows - 1 && c > 0 && c < cols - 1) {
+                    int q = r * cols + c;
+                    if (isSet(open, q)) {
                         existingExits++;
-                    } else if (pointsSeen.add(newPt)) {
-                        newExits.add(newPt);
+                    } else if (!isSet(seen, q)) {
+                        setBit(seen, q);
+                        newExits[nExits++] = q;
                     }
                 }
             }
 
-            int nExits = newExits.size();
             if (nExits > 0) {
                 double modifiedDensity;
-                Point forcedExit;
+                int forcedExit;
                 // Modify the density function so that the expected number of open exits
                 // is the same even though we're forcing something to be open.
                 if (existingExits < 2) {
                     modifiedDensity = (nExits == 1 ? 0.0 : (nExits * DENSITY - 1) / (nExits - 1));
-                    forcedExit = newExits.get(rand.nextInt(newExits.size()));
+                    forcedExit = rand.nextInt(nExits);
                 } else {
                     modifiedDensity = DENSITY;
-                    forcedExit = null;
+                    forcedExit = -1;
+                }
+                for (int x = 0; x < nExits; x++) {
+                    if (x == forcedExit || rand.nextDouble() < modifiedDensity) {
+                        int q = newExits[x];
+                        setBit(open, q);
+                        nodes.add(new Node(ids.next(), new Tile(q / cols, q % cols, goldGenerator.getAsInt(), Tile.Type.FLOOR)));
+                        if (tail == frontier.length) {
+                            frontier = Arrays.copyOf(frontier, 2 * tail);
+                        }
+                        frontier[tail++] = q;
+                    }
                 }
-                newExits.stream()
-                        .filter((q) -> q.equals(forcedExit) || rand.nextDouble() < modifiedDensity)
-                        .peek(openPoints::add)
-                        .map((q) -> new Node(new Tile(q.row, q.col, goldGenerator.get(), Tile.Type.FLOOR)))
-                        .peek(frontier::add)
-                        .forEach(nodes::add);
             }
         }
 
@@ -309,23 +556,37 @@ public class Cavern {
             nodes.get(targetIdx).getTile().setType(targetType);
         }
 
-        return Collections.unmodifiableSet(new HashSet<>(nodes));
+        return nodes;
+    }
+
+    /**
+     * Return true iff bit i of bits is set.
+     */
+    private static boolean isSet(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Set bit i of bits.
+     */
+    private static void setBit(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
     }
 
     /**
-     * Randomly determine and return the entrance to the cavern
+     * Randomly determine and return the cell of the entrance to the cavern
      * (the only non-wall tile along an edge of the grid).
      */
-    private Point getEntrancePoint(Random rand) {
+    private int getEntranceCell(Random rand) {
         switch (rand.nextInt(4)) {
             case 0: // North wall
-                return new Point(rand.nextInt(rows - 2) + 1, 0);
+                return (rand.nextInt(rows - 2) + 1) * cols;
             case 1: // South wall
-                return new Point(rand.nextInt(rows - 2) + 1, cols - 1);
+                return (rand.nextInt(rows - 2) + 1) * cols + cols - 1;
             case 2: // West wall
-                return new Point(0, rand.nextInt(cols - 2) + 1);
+                return rand.nextInt(cols - 2) + 1;
             case 3: // East wall
-                return new Point(rows - 1, rand.nextInt(cols - 2) + 1);
+                return (rows - 1) * cols + rand.nextInt(cols - 2) + 1;
             default:
                 throw new IllegalStateException("Unexpected random value!");
         }
@@ -357,6 +618,13 @@ public class Cavern {
      * This is an umodifiable view of the graph.
      */
     public Set<Node> getGraph() {
+        return graphNodes;
+    }
+
+    /**
+     * Return the CSR adjacency structure of this cavern.
+     */
+    CavernGraph getCavernGraph() {
         return graph;
     }
 
@@ -379,55 +647,159 @@ public class Cavern {
      * Precondition: ({@code r}, {@code c}) must be in the grid.
      */
     public Tile getTileAt(int r, int c) {
-        return tiles[r][c].getTile();
+        return getNodeAt(r, c).getTile();
     }
 
     /**
      * Return the node at position (r, c).
+     * Walls are not stored: each call for a wall returns a new node (equal to the
+     * others for the same cell). A wall at (r, c) has id n + r * cols + c, where n is
+     * the number of open nodes, so ids are unique within this cavern and those of
+     * open nodes are dense.
      * Precondition: ({@code r}, {@code c}) must be in the grid.
      */
     public Node getNodeAt(int r, int c) {
-        return tiles[r][c];
+        int i = cells[r * cols + c];
+        if (i >= 0) {
+            return graph.node(i);
+        }
+        return wall(r * cols + c);
     }
 
     /**
-     * Package-private implementation of Dijkstra's algorithm that returns
-     * only the minimum distance between the given node and the target node for
-     * this cavern (no path).
-     * Precondition: {@code start} must be a node in this cavern.
+     * Return the node of this cavern with the given id.
+     * This takes constant time: the id of an open node is its index in the graph,
+     * and that of a wall gives its cell (see getNodeAt).
+     * Throw an IllegalArgumentException if this cavern has no node with that id.
      */
-    int minPathLengthToTarget(Node start) {
+    public Node getNode(long id) {
+        Node n = findNode(id);
+        if (n == null) {
+            throw new IllegalArgumentException("getNode: no node with id " + id);
+        }
+        return n;
+    }
+
+    /**
+     * Return the Tile of the node of this cavern with the given id.
+     * Throw an IllegalArgumentException if this cavern has no node with that id.
+     */
+    public Tile getTile(long id) {
+        return getNode(id).getTile();
+    }
 
-        InternalMinHeap<Node> frontier = new InternalMinHeap<>();
+    /**
+     * Return the node of this cavern with the given id, or null if there is none.
+     */
+    Node findNode(long id) {
+        int n = graph.size();
+        if (id >= 0 && id < n) {
+            return graph.node((int) id);
+        }
+        long cell = id - n;
+        if (cell >= 0 && cell < cells.length && cells[(int) cell] < 0) {
+            return wall((int) cell);
+        }
+        return null;
+    }
+
+    /**
+     * Return a new wall node for cell c.
+     * Precondition: c is a wall.
+     */
+    private Node wall(int c) {
+        return new Node(graph.size() + (long) c, new Tile(c / cols, c % cols, 0, Tile.Type.WALL));
+    }
 
-        /** Contains an entry for each node in the Settled and Frontier sets. */
-        Map<Long, Integer> pathWeights = new HashMap<>();
+    /**
+     * Return the length of a shortest path from n to the target node of this cavern.
+     * The first call computes the distances from every node with one run of
+     * Dijkstra's algorithm from the target; every call after that takes constant time.
+     * Precondition: {@code n} must be a node in the graph of this cavern.
+     */
+    public int distanceToTarget(Node n) {
+        return distanceField()[n.index];
+    }
 
-        pathWeights.put(start.getId(), 0);
-        frontier.add(start, 0);
-        /// invariant: as in lecture notes
-        while (!frontier.isEmpty()) {
-            Node f = frontier.poll();
-            if (f.equals(target)) {
-                return pathWeights.get(f.getId());
+    /**
+     * Return the distance field of this cavern: element i is the length of a shortest
+     * path from the node with index i to the target, or -1 if there is no such path.
+     * Every edge of a cavern has a twin of the same length going the other way,
+     * so these are also the distances from the target.
+     * The array is shared and must not be modified.
+     */
+    int[] distanceField() {
+        int[] field = distancesToTarget;
+        if (field == null) {
+            synchronized (this) {
+                field = distancesToTarget;
+                if (field == null) {
+                    field = new int[graph.size()];
+                    ShortestPaths.search(graph, target.index, -1, field, null);
+                    distancesToTarget = field;
+                }
             }
+        }
+        return field;
+    }
 
-            int nWeight = pathWeights.get(f.getId());
-
-            for (Edge e : f.getExits()) {
-                Node w = e.getOther(f);
-                int weightThroughN = nWeight + e.length();
-                Integer existingWeight = pathWeights.get(w.getId());
-                if (existingWeight == null) {
-                    pathWeights.put(w.getId(), weightThroughN);
-                    frontier.add(w, weightThroughN);
-                } else if (weightThroughN < existingWeight) {
-                    pathWeights.put(w.getId(), weightThroughN);
-                    frontier.changePriority(w, weightThroughN);
+    /**
+     * Return the grid distance field of this cavern: element i is the Manhattan distance
+     * (rows plus columns, ignoring walls) from the node with index i to the target.
+     * The array is shared and must not be modified.
+     */
+    int[] gridDistanceField() {
+        int[] field = gridDistancesToTarget;
+        if (field == null) {
+            synchronized (this) {
+                field = gridDistancesToTarget;
+                if (field == null) {
+                    Tile t = target.getTile();
+                    field = new int[graph.size()];
+                    for (int i = 0; i < field.length; i++) {
+                        Tile u = graph.node(i).getTile();
+                        field[i] = Math.abs(u.getRow() - t.getRow()) + Math.abs(u.getColumn() - t.getColumn());
+                    }
+                    gridDistancesToTarget = field;
                 }
             }
         }
-        throw new IllegalStateException("The above loop should always reach the desired location.");
+        return field;
+    }
+
+    /**
+     * Package-private version of distanceToTarget that returns only the minimum
+     * distance between the given node and the target node for this cavern (no path).
+     * Precondition: {@code start} must be a node in this cavern.
+     */
+    int minPathLengthToTarget(Node start) {
+        int length = distanceToTarget(start);
+        if (length < 0) {
+            throw new IllegalStateException("The target should always be reachable.");
+        }
+        return length;
+    }
+
+    /**
+     * Return a shortest path from start to the target node of this cavern, as the list
+     * of nodes along it, beginning with start and ending with the target.
+     * Each call runs Dijkstra's algorithm from start, stopping once the target is
+     * settled, and follows the parent of each node back from the target.
+     * Precondition: {@code start} must be a node in the graph of this cavern.
+     */
+    public List<Node> minPathToTarget(Node start) {
+        int[] dist = new int[graph.size()];
+        int[] parent = new int[graph.size()];
+        if (ShortestPaths.search(graph, start.index, target.index, dist, parent) < 0) {
+            throw new IllegalStateException("The target should always be reachable.");
+        }
+
+        List<Node> path = new ArrayList<>();
+        for (int f = target.index; f >= 0; f = parent[f]) {
+            path.add(graph.node(f));
+        }
+        Collections.reverse(path);
+        return path;
     }
 
     /**
@@ -437,18 +809,36 @@ public class Cavern {
     public List<String> serialize() {
         List<String> nodes = new ArrayList<>();
         nodes.add(rows + ":" + cols + ",trgt:" + target.getId());
-        for (Node n : graph) {
-            Tile t = n.getTile();
-            String nodeStr = n.getId() + "," + t.getRow() + "," + t.getColumn() + "," + t.getGold() + "," + t.getType().name();
-
-            String edges = n.getExits().stream()
-                    .map((e) -> e.getOther(n).getId() + "-" + e.length())
-                    .collect(Collectors.joining(","));
-            nodes.add(nodeStr + "=" + edges);
+        StringBuilder sb = new StringBuilder();
+        for (Node n : graphNodes) {
+            sb.setLength(0);
+            try {
+                CavernTextFormat.writeNode(n, sb);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // a StringBuilder never throws
+            }
+            nodes.add(sb.toString());
         }
         return nodes;
     }
 
+    /**
+     * Write this cavern to out in the same text format as {@code serialize()},
+     * one line per element of the list it would return.
+     * The text can be converted back into a {@code Cavern} using {@code deserialize()}.
+     */
+    public void serialize(Writer out) throws IOException {
+        CavernTextFormat.write(this, out);
+    }
+
+    /**
+     * Write this cavern to the file at path in the binary cavern format,
+     * replacing any existing file. It can be read back using {@code readBinary()}.
+     */
+    public void writeBinary(Path path) throws IOException {
+        CavernBinaryFormat.write(this, path);
+    }
+
     /**
      * An enum reprsenting a grid direction.
      */
@@ -486,25 +876,5 @@ public class Cavern {
             row = r;
             col = c;
         }
-
-        /**
-         * Return a new point, which is p added to this point.
-         */
-        public Point add(Point p) {
-            return new Point(row + p.row, col + p.col);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Point)) return false;
-            Point p = (Point) o;
-            return p.row == row && p.col == col;
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(row, col);
-        }
     }
 }
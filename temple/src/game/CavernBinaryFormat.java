@@ -0,0 +1,187 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reading and writing caverns in a versioned binary format.
+ * All values are big-endian. The file is a fixed header of ints
+ * <p>
+ * MAGIC, VERSION, rows, cols, target index, entrance index, node count n, edge count m
+ * <p>
+ * followed by packed arrays describing the graph in CSR form (see CavernGraph):
+ * <p>
+ * int cells[n] (row * cols + col), int gold[n], int offsets[n + 1],
+ * int targets[m], int weights[m], byte types[n] (Tile.Type ordinals).
+ * <p>
+ * Files are read by mapping them into memory, so loading does no parsing and
+ * allocates nothing but the nodes and the arrays of the graph.
+ * Like every cavern, one that is read numbers its open nodes 0..n-1 in graph
+ * order, so node ids are not stored (version 1 files stored them; they are no
+ * longer read). Every header value and array element is checked on reading,
+ * so a truncated or corrupt file is reported as an IOException.
+ */
+final class CavernBinaryFormat {
+
+    /**
+     * The first four bytes of every binary cavern file: "CAVB".
+     */
+    static final int MAGIC = 0x43415642;
+    static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 8 * Integer.BYTES;
+
+    private CavernBinaryFormat() {
+    }
+
+    /**
+     * Return true iff the file at path starts with MAGIC.
+     */
+    static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // keep reading until we have the magic number or reach the end
+            }
+            return !buf.hasRemaining() && buf.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Write cavern to the file at path, replacing any existing file.
+     */
+    static void write(Cavern cavern, Path path) throws IOException {
+        CavernGraph graph = cavern.getCavernGraph();
+        int n = graph.size();
+        int m = graph.edgeCount();
+        int cols = cavern.getColumnCount();
+        long size = size(n, m);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Cavern too large for the binary format: " + n + " nodes, " + m + " edges");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        buf.putInt(MAGIC).putInt(VERSION)
+                .putInt(cavern.getRowCount()).putInt(cols)
+                .putInt(cavern.getTarget().index).putInt(cavern.getEntrance().index)
+                .putInt(n).putInt(m);
+        for (int i = 0; i < n; i++) {
+            Tile t = graph.node(i).getTile();
+            buf.putInt(t.getRow() * cols + t.getColumn());
+        }
+        for (int i = 0; i < n; i++) {
+            buf.putInt(graph.node(i).getTile().getGold());
+        }
+        buf.asIntBuffer().put(graph.offsets()).put(graph.targets()).put(graph.weights());
+        buf.position(buf.position() + (n + 1 + 2 * m) * Integer.BYTES);
+        for (int i = 0; i < n; i++) {
+            buf.put((byte) graph.node(i).getTile().getType().ordinal());
+        }
+        buf.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    /**
+     * Read the binary cavern file at path and return the Cavern it describes.
+     * Throw an IOException if the file is not a binary cavern file of a supported version.
+     */
+    static Cavern read(Path path) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a binary cavern file: " + path);
+            }
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw corrupt(path);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("Not a binary cavern file: " + path);
+        }
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary cavern version " + version + ": " + path);
+        }
+        int rows = buf.getInt();
+        int cols = buf.getInt();
+        int targetIdx = buf.getInt();
+        int entranceIdx = buf.getInt();
+        int n = buf.getInt();
+        int m = buf.getInt();
+        long cellCount = (long) rows * cols;
+        if (rows <= 0 || cols <= 0 || n <= 0 || m < 0 || n > cellCount
+                || targetIdx < 0 || targetIdx >= n || entranceIdx < 0 || entranceIdx >= n
+                || buf.capacity() != size(n, m)) {
+            throw corrupt(path);
+        }
+
+        int[] cells = new int[n];
+        int[] gold = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        buf.asIntBuffer().get(cells).get(gold).get(offsets).get(targets).get(weights);
+        buf.position(buf.position() + (3 * n + 1 + 2 * m) * Integer.BYTES);
+
+        if (offsets[0] != 0 || offsets[n] != m) {
+            throw corrupt(path);
+        }
+        for (int i = 0; i < n; i++) {
+            if (offsets[i] > offsets[i + 1] || cells[i] < 0 || cells[i] >= cellCount || gold[i] < 0) {
+                throw corrupt(path);
+            }
+        }
+        for (int k = 0; k < m; k++) {
+            if (targets[k] < 0 || targets[k] >= n || weights[k] < 0) {
+                throw corrupt(path);
+            }
+        }
+
+        Tile.Type[] types = Tile.Type.values();
+        NodeIdAllocator allocator = new NodeIdAllocator();
+        Node[] nodes = new Node[n];
+        for (int i = 0; i < n; i++) {
+            int type = buf.get();
+            if (type < 0 || type >= types.length) {
+                throw corrupt(path);
+            }
+            Tile t = new Tile(cells[i] / cols, cells[i] % cols, gold[i], types[type]);
+            nodes[i] = new Node(allocator.next(), t);
+        }
+
+        try {
+            CavernGraph graph = CavernGraph.of(nodes, offsets, targets, weights);
+            return Cavern.fromGraph(rows, cols, graph, nodes[entranceIdx], nodes[targetIdx]);
+        } catch (IllegalArgumentException e) {
+            // an edge between cells that are not adjacent, or a grid that is too large
+            throw new IOException("Truncated or corrupt binary cavern file: " + path, e);
+        }
+    }
+
+    /**
+     * Return the size in bytes of the file of a cavern with n nodes and m edges.
+     * The size is computed in long, so it does not overflow for any int n and m.
+     */
+    private static long size(int n, int m) {
+        return HEADER_BYTES + (3L * n + 1 + 2L * m) * Integer.BYTES + n;
+    }
+
+    /**
+     * Return the exception reporting that the file at path is truncated or corrupt.
+     */
+    private static IOException corrupt(Path path) {
+        return new IOException("Truncated or corrupt binary cavern file: " + path);
+    }
+}
@@ -0,0 +1,380 @@
+package game;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An instance is the immutable adjacency structure of a cavern, held in
+ * compressed sparse-row (CSR) form.
+ * Every open node has a dense index in 0..size()-1, and the exits of the node
+ * with index i occupy positions offsets[i]..offsets[i+1]-1 of targets and weights.
+ * Node and Edge objects are views over these arrays; searches should use the
+ * arrays directly.
+ * <p>
+ * Since caverns are 4-connected grids, each node also has one slot per
+ * Cavern.Direction holding the position of its exit in that direction, so
+ * finding the edge between two nodes takes constant time.
+ */
+final class CavernGraph {
+
+    private final Node[] nodes;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int maxWeight;
+
+    /**
+     * slots[4 * i + d] is the position of the exit of node i in the direction with
+     * ordinal d, or -1 if it has none.
+     */
+    private final int[] slots;
+
+    /**
+     * Edge objects for each position of targets, created the first time
+     * they are asked for.
+     */
+    private volatile Edge[] edges;
+
+    /**
+     * Constructor: an instance over nodes ns with adjacency (offs, tgts, wts).
+     * Precondition: ns[i].index == i for all i, the arrays are in CSR form and every
+     * edge joins the tiles of two adjacent cells of the grid.
+     */
+    private CavernGraph(Node[] ns, int[] offs, int[] tgts, int[] wts) {
+        nodes = ns;
+        offsets = offs;
+        targets = tgts;
+        weights = wts;
+
+        int max = 0;
+        for (int w : weights) {
+            max = Math.max(max, w);
+        }
+        maxWeight = max;
+
+        slots = new int[4 * ns.length];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < ns.length; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                int d = direction(ns[i].getTile(), ns[targets[k]].getTile());
+                if (d < 0) {
+                    Tile t = ns[i].getTile();
+                    Tile u = ns[targets[k]].getTile();
+                    throw new IllegalArgumentException("Edge between non-adjacent cells (" + t.getRow() + ", "
+                            + t.getColumn() + ") and (" + u.getRow() + ", " + u.getColumn() + ")");
+                }
+                slots[4 * i + d] = k;
+            }
+        }
+    }
+
+    /**
+     * Return the ordinal of the Cavern.Direction from tile t to tile u,
+     * or -1 if they are not in adjacent cells.
+     */
+    static int direction(Tile t, Tile u) {
+        int dr = u.getRow() - t.getRow();
+        int dc = u.getColumn() - t.getColumn();
+        if (dc == 0) {
+            return (dr == -1 ? 0 : dr == 1 ? 2 : -1);
+        }
+        if (dr == 0) {
+            return (dc == 1 ? 1 : dc == -1 ? 3 : -1);
+        }
+        return -1;
+    }
+
+    /**
+     * Return a CavernGraph over nodes ns with adjacency (offs, tgts, wts), giving node
+     * ns[i] index i and attaching every node to it. The arrays are not copied.
+     * Precondition: offs has length ns.length + 1, the arrays are in CSR form, every
+     * edge joins the tiles of two adjacent cells and no node of ns is in a graph yet.
+     */
+    static CavernGraph of(Node[] ns, int[] offs, int[] tgts, int[] wts) {
+        CavernGraph graph = new CavernGraph(ns, offs, tgts, wts);
+        for (int i = 0; i < ns.length; i++) {
+            ns[i].index = i;
+            ns[i].graph = graph;
+        }
+        return graph;
+    }
+
+    /**
+     * Return the number of nodes in this graph.
+     */
+    int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Return the number of directed edges in this graph.
+     */
+    int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Return the node with index i.
+     */
+    Node node(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Return the offsets array: the exits of node i are at offsets[i]..offsets[i+1]-1.
+     * The array is shared and must not be modified.
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Return the index of the destination of each edge. Shared; must not be modified.
+     */
+    int[] targets() {
+        return targets;
+    }
+
+    /**
+     * Return the length of each edge. Shared; must not be modified.
+     */
+    int[] weights() {
+        return weights;
+    }
+
+    /**
+     * Return the largest edge length in this graph (0 if there are no edges).
+     */
+    int maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Return the Edge object for edge position k.
+     */
+    Edge edge(int k) {
+        Edge[] es = edges;
+        if (es == null) {
+            es = createEdges();
+        }
+        return es[k];
+    }
+
+    /**
+     * Create the Edge objects for every edge position (once).
+     */
+    private synchronized Edge[] createEdges() {
+        if (edges == null) {
+            Edge[] es = new Edge[targets.length];
+            for (int i = 0; i < nodes.length; i++) {
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    es[k] = new Edge(nodes[i], nodes[targets[k]], weights[k]);
+                }
+            }
+            edges = es;
+        }
+        return edges;
+    }
+
+    /**
+     * Return the position of the edge from node i to node j, or -1 if there is none.
+     */
+    int find(int i, int j) {
+        int d = direction(nodes[i].getTile(), nodes[j].getTile());
+        if (d < 0) {
+            return -1;
+        }
+        int k = slots[4 * i + d];
+        return (k >= 0 && targets[k] == j ? k : -1);
+    }
+
+    /**
+     * Return the position of the exit of node i in the direction with ordinal d,
+     * or -1 if it has none.
+     */
+    int slot(int i, int d) {
+        return slots[4 * i + d];
+    }
+
+    /**
+     * Return an unmodifiable set view of all nodes in this graph.
+     */
+    AbstractSet<Node> nodeSet() {
+        return new AbstractSet<Node>() {
+            @Override
+            public Iterator<Node> iterator() {
+                return Arrays.asList(nodes).iterator();
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+
+            @Override
+            public boolean contains(Object ob) {
+                return ob instanceof Node && ((Node) ob).graph == CavernGraph.this;
+            }
+        };
+    }
+
+    /**
+     * Return an unmodifiable set view of the exits of node i.
+     */
+    AbstractSet<Edge> exitSet(int i) {
+        return new AbstractSet<Edge>() {
+            @Override
+            public Iterator<Edge> iterator() {
+                return new SliceIterator<Edge>(offsets[i], offsets[i + 1]) {
+                    @Override
+                    Edge get(int k) {
+                        return edge(k);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return offsets[i + 1] - offsets[i];
+            }
+        };
+    }
+
+    /**
+     * Return an unmodifiable set view of the neighbours of node i.
+     */
+    AbstractSet<Node> neighbourSet(int i) {
+        return new AbstractSet<Node>() {
+            @Override
+            public Iterator<Node> iterator() {
+                return new SliceIterator<Node>(offsets[i], offsets[i + 1]) {
+                    @Override
+                    Node get(int k) {
+                        return nodes[targets[k]];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return offsets[i + 1] - offsets[i];
+            }
+
+            @Override
+            public boolean contains(Object ob) {
+                if (!(ob instanceof Node)) {
+                    return false;
+                }
+                Node n = (Node) ob;
+                return n.graph == CavernGraph.this && find(i, n.index) >= 0;
+            }
+        };
+    }
+
+    /**
+     * An iterator over positions lo..hi-1 of the edge arrays.
+     */
+    private abstract static class SliceIterator<T> implements Iterator<T> {
+        private int k;
+        private final int hi;
+
+        private SliceIterator(int lo, int hi) {
+            k = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Return the element for edge position k.
+         */
+        abstract T get(int k);
+
+        @Override
+        public boolean hasNext() {
+            return k < hi;
+        }
+
+        @Override
+        public T next() {
+            if (k >= hi) {
+                throw new NoSuchElementException();
+            }
+            return get(k++);
+        }
+    }
+
+    /**
+     * An instance collects nodes and directed edges and then freezes them into a CavernGraph.
+     */
+    static final class Builder {
+        private Node[] nodes = new Node[16];
+        private int nodeCount;
+
+        private int[] sources = new int[64];
+        private int[] dests = new int[64];
+        private int[] lengths = new int[64];
+        private int edgeCount;
+
+        /**
+         * Add n to the graph, giving it the next free index, and return that index.
+         */
+        int add(Node n) {
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            }
+            n.index = nodeCount;
+            nodes[nodeCount] = n;
+            return nodeCount++;
+        }
+
+        /**
+         * Return the nodes added so far, in index order.
+         */
+        List<Node> nodes() {
+            return Arrays.asList(nodes).subList(0, nodeCount);
+        }
+
+        /**
+         * Add a directed edge of length len from src to dest.
+         * Precondition: both nodes have been added to this builder.
+         */
+        void addEdge(Node src, Node dest, int len) {
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                dests = Arrays.copyOf(dests, edgeCount * 2);
+                lengths = Arrays.copyOf(lengths, edgeCount * 2);
+            }
+            sources[edgeCount] = src.index;
+            dests[edgeCount] = dest.index;
+            lengths[edgeCount] = len;
+            edgeCount++;
+        }
+
+        /**
+         * Return the CavernGraph of the nodes and edges added so far and attach
+         * every node to it. The exits of each node keep the order they were added in.
+         */
+        CavernGraph build() {
+            int[] offsets = new int[nodeCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                offsets[sources[e] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            for (int e = 0; e < edgeCount; e++) {
+                int k = next[sources[e]]++;
+                targets[k] = dests[e];
+                weights[k] = lengths[e];
+            }
+
+            return CavernGraph.of(Arrays.copyOf(nodes, nodeCount), offsets, targets, weights);
+        }
+    }
+}
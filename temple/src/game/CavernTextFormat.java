@@ -0,0 +1,400 @@
+package game;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Streaming reading and writing of caverns in the text format of Cavern.serialize().
+ * The first line is "rows:cols,trgt:targetId" and each further line describes one node
+ * and its exits as "id,row,col,gold,TYPE=otherId-length,otherId-length,...".
+ * <p>
+ * Reading makes one pass over the characters, taking numbers directly from a
+ * char buffer without creating any Strings. Edges are recorded with the id of
+ * their destination, which may be on a later line, and resolved once every
+ * node has been read. The nodes of the cavern that is read are numbered 0..n-1
+ * in the order of their lines, whatever ids the file gives them.
+ * <p>
+ * Besides the syntax, reading checks what a cavern needs: numbers in the range of
+ * their type, nodes in distinct cells of the grid, distinct node ids, edges and a
+ * target naming nodes of the file, and exactly one ENTRANCE node.
+ */
+final class CavernTextFormat {
+
+    private static final Tile.Type[] TYPES = Tile.Type.values();
+
+    private CavernTextFormat() {
+    }
+
+    /**
+     * Write cavern to out in the text format, one line per node after the first.
+     */
+    static void write(Cavern cavern, Appendable out) throws IOException {
+        out.append(Integer.toString(cavern.getRowCount())).append(':')
+                .append(Integer.toString(cavern.getColumnCount()))
+                .append(",trgt:").append(Long.toString(cavern.getTarget().getId())).append('\n');
+        for (Node n : cavern.getGraph()) {
+            writeNode(n, out);
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Write the line describing node n to out, without a line terminator.
+     */
+    static void writeNode(Node n, Appendable out) throws IOException {
+        Tile t = n.getTile();
+        out.append(Long.toString(n.getId())).append(',')
+                .append(Integer.toString(t.getRow())).append(',')
+                .append(Integer.toString(t.getColumn())).append(',')
+                .append(Integer.toString(t.getGold())).append(',')
+                .append(t.getType().name()).append('=');
+        boolean first = true;
+        for (Edge e : n.getExits()) {
+            if (!first) {
+                out.append(',');
+            }
+            out.append(Long.toString(e.getOther(n).getId())).append('-')
+                    .append(Integer.toString(e.length()));
+            first = false;
+        }
+    }
+
+    /**
+     * Read a cavern in the text format from in and return it.
+     * Throw an IllegalArgumentException if the text is not in the format or does not
+     * describe a cavern.
+     */
+    static Cavern read(Reader in) throws IOException {
+        Tokenizer tok = new Tokenizer(in);
+
+        int rows = tok.readInt();
+        tok.expect(':');
+        int cols = tok.readInt();
+        if (rows == 0 || cols == 0 || (long) rows * cols > Cavern.MAX_CELLS) {
+            throw tok.error("a grid of " + rows + " x " + cols + " cells");
+        }
+        tok.expect(',');
+        tok.expect('t');
+        tok.expect('r');
+        tok.expect('g');
+        tok.expect('t');
+        tok.expect(':');
+        long targetId = tok.readNumber();
+        tok.endLine();
+
+        Node[] nodes = new Node[64];
+        long[] nodeIds = new long[64];
+        int[] offsets = new int[65];
+        long[] targetIds = new long[256];
+        int[] weights = new int[256];
+        int n = 0;
+        int m = 0;
+        IdTable ids = new IdTable();
+        NodeIdAllocator allocator = new NodeIdAllocator();
+        BitSet usedCells = new BitSet(rows * cols);
+        int entrance = -1;
+
+        while (tok.skipBlankLines()) {
+            long id = tok.readNumber();
+            if (!ids.put(id, n)) {
+                throw tok.error("a second node with id " + id);
+            }
+            tok.expect(',');
+            int row = tok.readInt();
+            tok.expect(',');
+            int col = tok.readInt();
+            if (row >= rows || col >= cols) {
+                throw tok.error("cell (" + row + ", " + col + ") is outside the grid");
+            }
+            if (usedCells.get(row * cols + col)) {
+                throw tok.error("a second node in cell (" + row + ", " + col + ")");
+            }
+            usedCells.set(row * cols + col);
+            tok.expect(',');
+            int gold = tok.readInt();
+            tok.expect(',');
+            Tile.Type type = tok.readType();
+            if (type == Tile.Type.ENTRANCE) {
+                if (entrance >= 0) {
+                    throw tok.error("a second ENTRANCE node");
+                }
+                entrance = n;
+            }
+            tok.expect('=');
+
+            while (!tok.atLineEnd()) {
+                if (m == targetIds.length) {
+                    targetIds = Arrays.copyOf(targetIds, 2 * m);
+                    weights = Arrays.copyOf(weights, 2 * m);
+                }
+                targetIds[m] = tok.readNumber();
+                tok.expect('-');
+                weights[m] = tok.readInt();
+                m++;
+                if (!tok.atLineEnd()) {
+                    tok.expect(',');
+                }
+            }
+            tok.endLine();
+
+            if (n == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * n);
+                nodeIds = Arrays.copyOf(nodeIds, 2 * n);
+                offsets = Arrays.copyOf(offsets, 2 * n + 1);
+            }
+            nodes[n] = new Node(allocator.next(), new Tile(row, col, gold, type));
+            nodeIds[n] = id;
+            n++;
+            offsets[n] = m;
+        }
+
+        if (entrance < 0) {
+            throw malformed("there is no ENTRANCE node");
+        }
+        int target = ids.get(targetId);
+        if (target < 0) {
+            throw malformed("the target id " + targetId + " is not the id of a node");
+        }
+        int[] targets = new int[m];
+        for (int i = 0; i < n; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                targets[k] = ids.get(targetIds[k]);
+                if (targets[k] < 0) {
+                    throw malformed("node " + nodeIds[i] + " has an exit to id " + targetIds[k]
+                            + ", which is not the id of a node");
+                }
+            }
+        }
+        nodes = Arrays.copyOf(nodes, n);
+        CavernGraph graph = CavernGraph.of(nodes, Arrays.copyOf(offsets, n + 1), targets, Arrays.copyOf(weights, m));
+        return Cavern.fromGraph(rows, cols, graph, nodes[entrance], nodes[target]);
+    }
+
+    /**
+     * Return an exception describing why the text read does not describe a cavern.
+     */
+    private static IllegalArgumentException malformed(String msg) {
+        return new IllegalArgumentException("Malformed cavern text: " + msg);
+    }
+
+    /**
+     * An instance reads characters of the text format from a Reader through a buffer.
+     */
+    private static final class Tokenizer {
+        private final Reader in;
+        private final char[] buf = new char[8192];
+        private final char[] word = new char[16];
+        private int pos;
+        private int limit;
+        private int line = 1;
+
+        private Tokenizer(Reader r) {
+            in = r;
+        }
+
+        /**
+         * Return the next character without consuming it, or -1 at the end of input.
+         */
+        private int peek() throws IOException {
+            if (pos == limit) {
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buf[pos];
+        }
+
+        /**
+         * Consume the next character, which must be c.
+         */
+        private void expect(char c) throws IOException {
+            if (peek() != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        /**
+         * Consume and return a non-negative decimal number that fits in a long.
+         */
+        private long readNumber() throws IOException {
+            int c = peek();
+            if (c < '0' || c > '9') {
+                throw error("expected a number");
+            }
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    throw error("number out of range");
+                }
+                value = 10 * value + (c - '0');
+                pos++;
+                c = peek();
+            }
+            return value;
+        }
+
+        /**
+         * Consume and return a non-negative decimal number that fits in an int.
+         */
+        private int readInt() throws IOException {
+            long value = readNumber();
+            if (value > Integer.MAX_VALUE) {
+                throw error("number out of range");
+            }
+            return (int) value;
+        }
+
+        /**
+         * Consume and return the name of a Tile.Type.
+         */
+        private Tile.Type readType() throws IOException {
+            int len = 0;
+            int c = peek();
+            while (c >= 'A' && c <= 'Z' && len < word.length) {
+                word[len++] = (char) c;
+                pos++;
+                c = peek();
+            }
+            for (Tile.Type type : TYPES) {
+                if (matches(type.name(), len)) {
+                    return type;
+                }
+            }
+            throw error("expected a tile type");
+        }
+
+        /**
+         * Return true iff word[0..len-1] holds the characters of s.
+         */
+        private boolean matches(String s, int len) {
+            if (s.length() != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (s.charAt(i) != word[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Return true iff the next character ends a line (or the input).
+         */
+        private boolean atLineEnd() throws IOException {
+            int c = peek();
+            return c == '\n' || c == '\r' || c == -1;
+        }
+
+        /**
+         * Consume the end of the current line, which must come next.
+         */
+        private void endLine() throws IOException {
+            int c = peek();
+            if (c == '\r') {
+                pos++;
+                c = peek();
+            }
+            if (c == '\n') {
+                pos++;
+                line++;
+            } else if (c != -1) {
+                throw error("expected the end of the line");
+            }
+        }
+
+        /**
+         * Consume any empty lines and return true iff there is more input.
+         */
+        private boolean skipBlankLines() throws IOException {
+            while (peek() == '\n' || peek() == '\r') {
+                endLine();
+            }
+            return peek() != -1;
+        }
+
+        /**
+         * Return an exception describing a syntax error at the current line.
+         */
+        private IllegalArgumentException error(String msg) {
+            return new IllegalArgumentException("Malformed cavern text at line " + line + ": " + msg);
+        }
+    }
+
+    /**
+     * An instance maps node ids from a file to node indices, using open addressing
+     * over primitive arrays.
+     */
+    private static final class IdTable {
+        private long[] keys = new long[128];
+        private int[] values = new int[128];
+        private boolean[] used = new boolean[128];
+        private int shift = Long.numberOfLeadingZeros(128) + 1;
+        private int size;
+
+        /**
+         * Map id to index and return true, or return false, changing nothing,
+         * if id is already mapped.
+         */
+        private boolean put(long id, int index) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int i = slot(id);
+            if (used[i]) {
+                return false;
+            }
+            used[i] = true;
+            keys[i] = id;
+            values[i] = index;
+            size++;
+            return true;
+        }
+
+        /**
+         * Return the index that id maps to, or -1 if there is none.
+         */
+        private int get(long id) {
+            int i = slot(id);
+            return (used[i] ? values[i] : -1);
+        }
+
+        /**
+         * Return the slot holding id, or the empty slot where it belongs.
+         * The home slot is the top log2(capacity) bits of the Fibonacci hash of id.
+         */
+        private int slot(long id) {
+            int mask = keys.length - 1;
+            int i = (int) (id * 0x9E3779B97F4A7C15L >>> shift);
+            while (used[i] && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Double the capacity of the table.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[2 * oldKeys.length];
+            values = new int[2 * oldKeys.length];
+            used = new boolean[2 * oldKeys.length];
+            shift--;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package game;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel single-source shortest paths over a CavernGraph by delta-stepping
+ * (Meyer and Sanders), using fork-join workers.
+ * <p>
+ * Nodes are kept in buckets of width delta by tentative distance, and the buckets
+ * are processed in order. The nodes of the current bucket are relaxed together in
+ * parallel, along their light edges (length at most delta) again and again until the
+ * bucket stays empty, and then once along their heavy edges. Distances are lowered
+ * with compare-and-set, so workers may race to lower the same node; every lowering is
+ * recorded and the bucket lists are rebuilt between phases on one thread, dropping
+ * entries whose node has since moved to a lower bucket.
+ * <p>
+ * Shortest distances are unique, so the distances found are exactly those of Dijkstra's
+ * algorithm whatever the schedule. Small delta does little work per phase but needs many
+ * phases; large delta needs few phases but relaxes nodes more than once. A delta of
+ * about the largest edge length suits caverns, whose edges are 1..Cavern.MAX_EDGE_WEIGHT.
+ */
+final class DeltaStepping {
+
+    /**
+     * ShortestPaths uses delta-stepping for full distance fields of graphs with at least
+     * this many nodes, when the common pool has at least MIN_PARALLELISM workers.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    /**
+     * The fewest workers delta-stepping needs to beat the sequential search. On one
+     * worker it takes about twice as long (it relaxes nodes more than once and rebuilds
+     * its buckets between phases), so two workers at best break even.
+     * DeltaSteppingCheck prints the speedup on the hardware it runs on.
+     */
+    static final int MIN_PARALLELISM = 4;
+
+    static final int DEFAULT_DELTA = Cavern.MAX_EDGE_WEIGHT;
+
+    /**
+     * The most nodes a worker relaxes without splitting its share of a phase.
+     */
+    private static final int GRAIN = 1024;
+
+    private static final VarHandle DIST = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] dist;
+    private final int delta;
+    private final ForkJoinPool pool;
+
+    private IntList[] buckets = new IntList[16];
+    private final int[] mark;    // mark[v] == round iff v is already in the next frontier
+    private final int[] removed; // removed[v] == b + 1 iff v was taken from bucket b
+    private int round;
+
+    private DeltaStepping(CavernGraph graph, int[] dist, int delta, ForkJoinPool pool) {
+        offsets = graph.offsets();
+        targets = graph.targets();
+        weights = graph.weights();
+        this.dist = dist;
+        this.delta = delta;
+        this.pool = pool;
+        mark = new int[graph.size()];
+        removed = new int[graph.size()];
+    }
+
+    /**
+     * Set dist[i] to the distance from node source to node i in graph, or -1 if node i
+     * cannot be reached, using buckets of width delta and the workers of pool.
+     * Throw an IllegalArgumentException if delta < 1.
+     * Precondition: dist has length graph.size().
+     */
+    static void search(CavernGraph graph, int source, int[] dist, int delta, ForkJoinPool pool) {
+        if (delta < 1) {
+            throw new IllegalArgumentException("delta must be positive: " + delta);
+        }
+        Arrays.fill(dist, -1);
+        new DeltaStepping(graph, dist, delta, pool).run(source);
+    }
+
+    /**
+     * Compute the distances from node source.
+     */
+    private void run(int source) {
+        dist[source] = 0;
+        bucket(0).add(source);
+        for (int b = 0; b < buckets.length; b++) {
+            IntList pending = buckets[b];
+            if (pending == null) {
+                continue;
+            }
+            buckets[b] = null;
+
+            IntList taken = new IntList();
+            IntList frontier = inBucket(pending, b);
+            while (frontier.size > 0) {
+                for (int i = 0; i < frontier.size; i++) {
+                    int v = frontier.items[i];
+                    if (removed[v] != b + 1) {
+                        removed[v] = b + 1;
+                        taken.add(v);
+                    }
+                }
+                IntList lowered = relax(frontier, true);
+                // Nodes lowered into this bucket are relaxed again; the rest wait for their bucket.
+                IntList next = new IntList();
+                for (int i = 0; i < lowered.size; i++) {
+                    int w = lowered.items[i];
+                    int bw = dist[w] / delta;
+                    if (bw != b) {
+                        bucket(bw).add(w);
+                    } else {
+                        next.add(w);
+                    }
+                }
+                frontier = inBucket(next, b);
+            }
+
+            IntList lowered = relax(taken, false);
+            for (int i = 0; i < lowered.size; i++) {
+                int w = lowered.items[i];
+                bucket(dist[w] / delta).add(w);
+            }
+        }
+    }
+
+    /**
+     * Return the nodes of list that are (still) in bucket b, each once.
+     */
+    private IntList inBucket(IntList list, int b) {
+        round++;
+        IntList out = new IntList();
+        for (int i = 0; i < list.size; i++) {
+            int v = list.items[i];
+            if (dist[v] / delta == b && mark[v] != round) {
+                mark[v] = round;
+                out.add(v);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Return the list of bucket b, creating it if need be.
+     */
+    private IntList bucket(int b) {
+        if (b >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(2 * buckets.length, b + 1));
+        }
+        if (buckets[b] == null) {
+            buckets[b] = new IntList();
+        }
+        return buckets[b];
+    }
+
+    /**
+     * Relax the light edges (if light) or heavy edges (if not) of the nodes of nodes, in
+     * parallel, and return the nodes whose distances were lowered (some perhaps more than once).
+     */
+    private IntList relax(IntList nodes, boolean light) {
+        Relax task = new Relax(nodes.items, 0, nodes.size, light);
+        return (nodes.size <= GRAIN ? task.compute() : pool.invoke(task));
+    }
+
+    /**
+     * Lower dist[w] to d if d is smaller (or w has not been reached), atomically.
+     * Return true iff dist[w] was lowered.
+     */
+    private boolean lower(int w, int d) {
+        int current = (int) DIST.getVolatile(dist, w);
+        while (current < 0 || d < current) {
+            if (DIST.compareAndSet(dist, w, current, d)) {
+                return true;
+            }
+            current = (int) DIST.getVolatile(dist, w);
+        }
+        return false;
+    }
+
+    /**
+     * A task relaxing the edges of nodes[lo..hi-1] of one kind, splitting itself
+     * while it has more than GRAIN nodes.
+     */
+    @SuppressWarnings("serial")
+    private final class Relax extends RecursiveTask<IntList> {
+        private final int[] nodes;
+        private final int lo;
+        private final int hi;
+        private final boolean light;
+
+        private Relax(int[] nodes, int lo, int hi, boolean light) {
+            this.nodes = nodes;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (hi - lo > GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                Relax left = new Relax(nodes, lo, mid, light);
+                left.fork();
+                IntList right = new Relax(nodes, mid, hi, light).compute();
+                return left.join().addAll(right);
+            }
+            IntList lowered = new IntList();
+            for (int i = lo; i < hi; i++) {
+                int v = nodes[i];
+                int dv = (int) DIST.getVolatile(dist, v);
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    if ((weights[k] <= delta) == light && lower(targets[k], dv + weights[k])) {
+                        lowered.add(targets[k]);
+                    }
+                }
+            }
+            return lowered;
+        }
+    }
+
+    /**
+     * An instance is a growable list of ints.
+     */
+    private static final class IntList {
+        private int[] items = new int[8];
+        private int size;
+
+        /**
+         * Append v.
+         */
+        private void add(int v) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * size);
+            }
+            items[size++] = v;
+        }
+
+        /**
+         * Append the elements of other and return this list.
+         */
+        private IntList addAll(IntList other) {
+            if (size + other.size > items.length) {
+                items = Arrays.copyOf(items, Math.max(2 * items.length, size + other.size));
+            }
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+            return this;
+        }
+    }
+}
@@ -11,6 +11,11 @@ import java.util.Collection;
  * to search through the cavern and find the target.
  */
 public interface ExplorationState {
+    /**
+     * The largest number of neighbours a location can have.
+     */
+    public static final int MAX_NEIGHBOURS = 4;
+
     /**
      * Return the unique identifier associated with your current location.
      */
@@ -27,6 +32,33 @@ public interface ExplorationState {
      */
     public Collection<NodeStatus> getNeighbours();
 
+    /**
+     * Put the ids of the direct neighbours of your current location in ids and their
+     * distances to the target along the grid in distances (the same information as
+     * getNeighbours(), without creating any objects), and return how many there are.
+     * Precondition: ids and distances have length at least MAX_NEIGHBOURS.
+     */
+    public default int getNeighbours(long[] ids, int[] distances) {
+        int count = 0;
+        for (NodeStatus ns : getNeighbours()) {
+            ids[count] = ns.getId();
+            distances[count] = ns.getDistanceToTarget();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Call visitor.visit with the id and the distance to the target along the grid
+     * of each direct neighbour of your current location (the same information as
+     * getNeighbours(), without creating any objects).
+     */
+    public default void forEachNeighbour(NeighbourVisitor visitor) {
+        for (NodeStatus ns : getNeighbours()) {
+            visitor.visit(ns.getId(), ns.getDistanceToTarget());
+        }
+    }
+
     /**
      * Return your current distance along the grid (NOT THE GRAPH) from the target.
      */
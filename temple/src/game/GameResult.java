@@ -0,0 +1,88 @@
+package game;
+
+/**
+ * An instance is the outcome of one headless game: its seed, how each phase
+ * went, the score, and how long each phase took.
+ */
+public final class GameResult {
+    private final long seed;
+    private final boolean exploreSucceeded;
+    private final boolean escapeSucceeded;
+    private final int goldCollected;
+    private final int score;
+    private final long generateNanos;
+    private final long exploreNanos;
+    private final long escapeNanos;
+
+    /**
+     * Constructor: the result of the game with seed s, which scored sc with
+     * gold g, and whose phases took the given times in nanoseconds.
+     */
+    GameResult(long s, boolean explored, boolean escaped, int g, int sc,
+               long generate, long explore, long escape) {
+        seed = s;
+        exploreSucceeded = explored;
+        escapeSucceeded = escaped;
+        goldCollected = g;
+        score = sc;
+        generateNanos = generate;
+        exploreNanos = explore;
+        escapeNanos = escape;
+    }
+
+    /**
+     * Return the seed the game was generated from.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Return true iff the explore phase ended on the orb without an error.
+     */
+    public boolean getExploreSucceeded() {
+        return exploreSucceeded;
+    }
+
+    /**
+     * Return true iff the escape phase ended at the exit in time.
+     */
+    public boolean getEscapeSucceeded() {
+        return escapeSucceeded;
+    }
+
+    /**
+     * Return the gold collected while escaping.
+     */
+    public int getGoldCollected() {
+        return goldCollected;
+    }
+
+    /**
+     * Return the score of the game.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Return the time taken to generate both caverns, in nanoseconds.
+     */
+    public long getGenerateNanos() {
+        return generateNanos;
+    }
+
+    /**
+     * Return the time taken by the explore phase, in nanoseconds.
+     */
+    public long getExploreNanos() {
+        return exploreNanos;
+    }
+
+    /**
+     * Return the time taken by the escape phase, in nanoseconds.
+     */
+    public long getEscapeNanos() {
+        return escapeNanos;
+    }
+}
@@ -4,7 +4,6 @@ import gui.GUI;
 import student.Explorer;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
@@ -40,11 +39,12 @@ public class GameState implements ExplorationState, EscapeState {
     private boolean exploreErrored = false;
     private boolean escapeErrored = false;
     private int minTimeToExplore;
+    private boolean quiet = false;
 
     public GameState(Path exploreCavernPath, Path escapeCavernPath) throws IOException {
-        exploreCavern = Cavern.deserialize(Files.readAllLines(exploreCavernPath));
+        exploreCavern = Cavern.load(exploreCavernPath);
         minTimeToExplore = exploreCavern.minPathLengthToTarget(exploreCavern.getEntrance());
-        escapeCavern = Cavern.deserialize(Files.readAllLines(escapeCavernPath));
+        escapeCavern = Cavern.load(escapeCavernPath);
 
         explorer = new Explorer();
 
@@ -59,11 +59,36 @@ public class GameState implements ExplorationState, EscapeState {
         gui = Optional.of(new GUI(exploreCavern, position.getTile().getRow(), position.getTile().getColumn(), 0));
     }
 
+    /**
+     * Constructor: an instance without a GUI or console report that plays
+     * exploreCav and then escapeCav.
+     * Precondition: the caverns have the same size, and the cell of the orb
+     * of exploreCav is open in escapeCav.
+     */
+    GameState(Cavern exploreCav, Cavern escapeCav) {
+        exploreCavern = exploreCav;
+        minTimeToExplore = exploreCavern.minPathLengthToTarget(exploreCavern.getEntrance());
+        escapeCavern = escapeCav;
+
+        explorer = new Explorer();
+
+        position = exploreCavern.getEntrance();
+        stepsTaken = 0;
+        timeRemaining = Integer.MAX_VALUE;
+        goldCollected = 0;
+
+        seed = -1;
+        quiet = true;
+
+        stage = Stage.EXPLORE;
+        gui = Optional.empty();
+    }
+
     /**
      * Constructor: a random instance with a GUI only if useGUI is true.
      */
-    private GameState(boolean useGui) {
-        this((new Random()).nextLong(), useGui);   // dodgy code - should reuse the random number
+    private GameState(boolean useGui, int rows, int cols, GenerationMode mode, GenerationStats stats) {
+        this((new Random()).nextLong(), useGui, rows, cols, mode, stats);   // dodgy code - should reuse the random number
     }
 
     /**
@@ -71,13 +96,29 @@ public class GameState implements ExplorationState, EscapeState {
      * The randomness is based on seed.
      */
     private GameState(long seed, boolean useGui) {
+        this(seed, useGui, 0, 0, GenerationMode.REJECTION, null);
+    }
+
+    /**
+     * Constructor: a random instance with caverns of size (rows, cols) and a GUI only
+     * if useGUI is true. The randomness is based on seed.
+     * If rows is 0, the size is random, between the MIN and MAX sizes of Constants;
+     * otherwise it can be far larger than those (see Cavern.MAX_CELLS).
+     * The caverns are generated in the given mode, recording the work done in stats
+     * if it is not null.
+     */
+    private GameState(long seed, boolean useGui, int rows, int cols, GenerationMode mode, GenerationStats stats) {
         Random rand = new Random(seed);
-        int ROWS = rand.nextInt(MAX_ROWS - MIN_ROWS + 1) + MIN_ROWS;
-        int COLS = rand.nextInt(MAX_COLS - MIN_COLS + 1) + MIN_COLS;
-        exploreCavern = Cavern.digExploreCavern(ROWS, COLS, rand);
+        int ROWS = rows;
+        int COLS = cols;
+        if (rows == 0) {
+            ROWS = rand.nextInt(MAX_ROWS - MIN_ROWS + 1) + MIN_ROWS;
+            COLS = rand.nextInt(MAX_COLS - MIN_COLS + 1) + MIN_COLS;
+        }
+        exploreCavern = Cavern.digExploreCavern(ROWS, COLS, rand, mode, stats);
         minTimeToExplore = exploreCavern.minPathLengthToTarget(exploreCavern.getEntrance());
         Tile orbTile = exploreCavern.getTarget().getTile();
-        escapeCavern = Cavern.digEscapeCavern(ROWS, COLS, orbTile.getRow(), orbTile.getColumn(), rand);
+        escapeCavern = Cavern.digEscapeCavern(ROWS, COLS, orbTile.getRow(), orbTile.getColumn(), rand, mode, stats);
 
         position = exploreCavern.getEntrance();
         stepsTaken = 0;
@@ -98,17 +139,85 @@ public class GameState implements ExplorationState, EscapeState {
     }
 
     public static int runNewGame(long seed, boolean useGui) {
+        return runNewGame(seed, useGui, 0, 0, GenerationMode.REJECTION, null);
+    }
+
+    /**
+     * Run a new game with caverns of size (rows, cols), or of a random size if rows is 0,
+     * generated from seed (or a random seed if seed is 0) in the given mode, and return
+     * its score. Record the work generation did in stats, if it is not null.
+     */
+    public static int runNewGame(long seed, boolean useGui, int rows, int cols,
+                                 GenerationMode mode, GenerationStats stats) {
+        return runNewGame(seed, useGui, rows, cols, mode, stats, 0);
+    }
+
+    /**
+     * Run a new game as runNewGame(seed, useGui, rows, cols, mode, stats) does, but with
+     * the explorer planning its escape against a wall-clock deadline of
+     * escapeDeadlineMillis milliseconds (see Explorer.setEscapeDeadline), or by its
+     * deterministic budget of rounds if escapeDeadlineMillis is 0, and return its score.
+     */
+    public static int runNewGame(long seed, boolean useGui, int rows, int cols,
+                                 GenerationMode mode, GenerationStats stats, long escapeDeadlineMillis) {
         GameState state;
         if (seed != 0) {
-            state = new GameState(seed, useGui);
+            state = new GameState(seed, useGui, rows, cols, mode, stats);
         } else {
-            state = new GameState(useGui);
+            state = new GameState(useGui, rows, cols, mode, stats);
         }
         System.out.println("Seed : " + state.seed);
+        state.explorer.setEscapeDeadline(escapeDeadlineMillis);
         state.run();
         return state.getScore();
     }
 
+    /**
+     * Run a new game generated from seed without a GUI or console report and return
+     * its result, including how long each phase took.
+     * Games run this way share no mutable state, so many can run at once on different threads,
+     * and the explorer plans its escape by a fixed budget of rounds, so the same seed
+     * always gives the same result.
+     */
+    public static GameResult runHeadlessGame(long seed) {
+        return runHeadlessGame(seed, 0, 0, GenerationMode.REJECTION, null);
+    }
+
+    /**
+     * Run a new game as runHeadlessGame(seed) does, but with caverns of size (rows, cols)
+     * (or of a random size if rows is 0) generated in the given mode, and return its result.
+     * Record the work generation did in stats, if it is not null.
+     */
+    public static GameResult runHeadlessGame(long seed, int rows, int cols,
+                                             GenerationMode mode, GenerationStats stats) {
+        return runHeadlessGame(seed, rows, cols, mode, stats, 0);
+    }
+
+    /**
+     * Run a new game as runHeadlessGame(seed, rows, cols, mode, stats) does, but with
+     * the explorer planning its escape against a wall-clock deadline of
+     * escapeDeadlineMillis milliseconds, or by its deterministic budget of rounds if
+     * escapeDeadlineMillis is 0, and return its result. With a deadline, the result
+     * depends on the speed and load of the machine.
+     */
+    public static GameResult runHeadlessGame(long seed, int rows, int cols, GenerationMode mode,
+                                             GenerationStats stats, long escapeDeadlineMillis) {
+        long start = System.nanoTime();
+        GameState state = new GameState(seed, false, rows, cols, mode, stats);
+        state.quiet = true;
+        state.explorer.setEscapeDeadline(escapeDeadlineMillis);
+        long generated = System.nanoTime();
+        state.explore();
+        long explored = System.nanoTime();
+        if (state.exploreSucceeded) {
+            state.escape();
+        }
+        long escaped = System.nanoTime();
+        return new GameResult(seed, state.exploreSucceeded, state.escapeSucceeded,
+                state.goldCollected, state.getScore(),
+                generated - start, explored - generated, escaped - explored);
+    }
+
     /**
      * Run the game: first find the Orb and then escape.
      */
@@ -174,10 +283,12 @@ public class GameState implements ExplorationState, EscapeState {
         if (!escapeSucceeded) {
             output(gui, "Your solution to escape failed to end at the stairs. Your code is not correct!");
         }
-        System.out.println("Gold collected   : " + getGoldCollected());
-        DecimalFormat df = new DecimalFormat("#.##");
-        System.out.println("Bonus multiplier : " + df.format(computeBonusFactor()));
-        System.out.println("Score            : " + getScore());
+        if (!quiet) {
+            System.out.println("Gold collected   : " + getGoldCollected());
+            DecimalFormat df = new DecimalFormat("#.##");
+            System.out.println("Bonus multiplier : " + df.format(computeBonusFactor()));
+            System.out.println("Score            : " + getScore());
+        }
     }
 
     /**
@@ -210,16 +321,14 @@ public class GameState implements ExplorationState, EscapeState {
             throw new IllegalStateException("moveTo(ID) can only be called while exploring!");
         }
 
-        for (Node n : position.getNeighbours()) {
-            if (n.getId() == id) {
-                position = n;
-                stepsTaken++;
-                gui.ifPresent((g) -> g.updateBonus(computeBonusFactor()));
-                gui.ifPresent((g) -> g.moveTo(n));
-                return;
-            }
+        Node n = exploreCavern.findNode(id);
+        if (n == null || position.findEdge(n) == null) {
+            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
         }
-        throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        position = n;
+        stepsTaken++;
+        gui.ifPresent((g) -> g.updateBonus(computeBonusFactor()));
+        gui.ifPresent((g) -> g.moveTo(n));
     }
 
     /**
@@ -244,17 +353,58 @@ public class GameState implements ExplorationState, EscapeState {
             throw new IllegalStateException("getNeighbours() can only be called while exploring!");
         }
 
+        int[] distances = exploreCavern.gridDistanceField();
         Collection<NodeStatus> options = new ArrayList<>();
         for (Node n : position.getNeighbours()) {
-            int distance = computeDistanceToTarget(n.getTile().getRow(), n.getTile().getColumn());
-            options.add(new NodeStatus(n.getId(), distance));
+            options.add(new NodeStatus(n.getId(), distances[n.index]));
         }
         return options;
     }
 
-    private int computeDistanceToTarget(int row, int col) {
-        return Math.abs(row - exploreCavern.getTarget().getTile().getRow())
-                + Math.abs(col - exploreCavern.getTarget().getTile().getColumn());
+    /**
+     * Put the ids of the neighbours of the current location in ids and their distances
+     * to the target in distances, and return how many there are.
+     * This reads the graph's arrays and the grid distance field of the cavern directly,
+     * so it creates no objects.
+     */
+    @Override
+    public int getNeighbours(long[] ids, int[] distances) {
+        if (stage != Stage.EXPLORE) {
+            throw new IllegalStateException("getNeighbours() can only be called while exploring!");
+        }
+
+        int[] field = exploreCavern.gridDistanceField();
+        CavernGraph graph = exploreCavern.getCavernGraph();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int count = 0;
+        for (int k = offsets[position.index]; k < offsets[position.index + 1]; k++) {
+            int w = targets[k];
+            ids[count] = graph.node(w).getId();
+            distances[count] = field[w];
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Call visitor.visit with the id and distance to the target of each neighbour
+     * of the current location, without creating any objects.
+     */
+    @Override
+    public void forEachNeighbour(NeighbourVisitor visitor) {
+        if (stage != Stage.EXPLORE) {
+            throw new IllegalStateException("forEachNeighbour() can only be called while exploring!");
+        }
+
+        int[] field = exploreCavern.gridDistanceField();
+        CavernGraph graph = exploreCavern.getCavernGraph();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        for (int k = offsets[position.index]; k < offsets[position.index + 1]; k++) {
+            int w = targets[k];
+            visitor.visit(graph.node(w).getId(), field[w]);
+        }
     }
 
     /**
@@ -266,7 +416,7 @@ public class GameState implements ExplorationState, EscapeState {
             throw new IllegalStateException("getDistanceToTarget() can only be called while exploring!");
         }
 
-        return computeDistanceToTarget(position.getTile().getRow(), position.getTile().getColumn());
+        return exploreCavern.gridDistanceField()[position.index];
     }
 
     @Override
@@ -309,19 +459,19 @@ public class GameState implements ExplorationState, EscapeState {
         if (stage != Stage.ESCAPE) {
             throw new IllegalStateException("moveTo(Node) can only be called when escaping!");
         }
-        int distance = position.getEdge(n).length;
+        Edge edge = position.findEdge(n);
+        if (edge == null) {
+            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+        }
+        int distance = edge.length;
         if (timeRemaining - distance < 0) {
             throw new OutOfTimeException();
         }
 
-        if (position.getNeighbours().contains(n)) {
-            position = n;
-            timeRemaining -= distance;
-            gui.ifPresent((g) -> g.updateTimeRemaining(timeRemaining));
-            gui.ifPresent((g) -> g.moveTo(n));
-        } else {
-            throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
-        }
+        position = n;
+        timeRemaining -= distance;
+        gui.ifPresent((g) -> g.updateTimeRemaining(timeRemaining));
+        gui.ifPresent((g) -> g.moveTo(n));
     }
 
     @Override
@@ -0,0 +1,34 @@
+package game;
+
+/**
+ * The ways Cavern can meet the constraints on the caverns it generates:
+ * that the orb of an explore cavern is far enough from the entrance, and
+ * that a given cell of an escape cavern is open floor.
+ */
+public enum GenerationMode {
+    /**
+     * Generate whole caverns until one meets the constraints (the original behaviour).
+     * Its cost is the number of candidates times the cost of one, which grows with the
+     * grid: at one million tiles a candidate takes a few hundred milliseconds, and an
+     * explore cavern needs between one and a handful of them, so use CONSTRUCTIVE
+     * where a predictable generation time matters more than REJECTION's caverns.
+     */
+    REJECTION,
+    /**
+     * Generate one cavern and make it meet the constraints: place the orb on a node
+     * already known to be far enough from the entrance, and carve the shortest
+     * passage from the required cell to the floor if it is not open.
+     * Caverns differ from those of REJECTION for the same seed.
+     * Its cost is that of one candidate, but that is not small: at one million tiles,
+     * on one core, a cavern takes about 0.7-1 s.
+     */
+    CONSTRUCTIVE,
+    /**
+     * Generate Cavern.PARALLEL_CANDIDATES whole caverns at once on worker threads, each
+     * from its own seed drawn from the caller's Random, and keep the lowest-index one
+     * that meets the constraints, cancelling the rest; repeat if none does.
+     * Caverns differ from those of REJECTION for the same seed, but do not depend on
+     * how the candidates are scheduled.
+     */
+    PARALLEL
+}
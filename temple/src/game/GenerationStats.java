@@ -0,0 +1,77 @@
+package game;
+
+/**
+ * An instance accumulates how much work cavern generation did: the candidate
+ * caverns generated, how many of them were rejected, how many speculative
+ * candidates were cancelled or discarded once another passed (see
+ * GenerationMode.PARALLEL), and the number of retries
+ * that constructive generation avoided. That is the number of candidates that
+ * REJECTION mode would have thrown away where constructive generation fixed them
+ * instead (its expected value, for the choice of the orb); it is a lower bound,
+ * since the replacements REJECTION generates can be rejected too.
+ * Instances can be shared by threads generating caverns at the same time.
+ */
+public final class GenerationStats {
+    private long candidates;
+    private long rejected;
+    private long cancelled;
+    private double retriesAvoided;
+
+    /**
+     * Record that a candidate cavern was generated, and whether it was accepted.
+     */
+    synchronized void recordCandidate(boolean accepted) {
+        candidates++;
+        if (!accepted) {
+            rejected++;
+        }
+    }
+
+    /**
+     * Record that n speculative candidates were cancelled or discarded.
+     */
+    synchronized void recordCancelled(int n) {
+        cancelled += n;
+    }
+
+    /**
+     * Record that constructive generation avoided a (possibly expected) number of retries.
+     */
+    synchronized void recordRetriesAvoided(double expected) {
+        retriesAvoided += expected;
+    }
+
+    /**
+     * Return the number of candidate caverns generated.
+     */
+    public synchronized long getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Return the number of candidate caverns rejected.
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Return the number of speculative candidates cancelled or discarded.
+     */
+    public synchronized long getCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Return the number of retries that constructive generation avoided.
+     */
+    public synchronized double getRetriesAvoided() {
+        return retriesAvoided;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d candidates, %d rejected, %d cancelled, %.1f retries avoided",
+                candidates, rejected, cancelled, retriesAvoided);
+    }
+}
@@ -0,0 +1,217 @@
+package game;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An instance is a priority queue of int keys in 0..capacity-1 implemented as
+ * a d-ary min-heap over primitive arrays.
+ * Keys are meant to be dense node indices, so no objects are allocated after
+ * construction and changing the priority of a key takes O(log n) time without
+ * any hashing.
+ */
+public class IndexMinHeap {
+
+    private final int arity;
+    private int size; // number of keys in the priority queue (and heap)
+
+    /**
+     * The heap invariant is given below, with d the arity.
+     * <p>
+     * heap[0..size-1] is viewed as a d-ary min-heap, i.e.
+     * 1. Each array element in heap[0..size-1] contains a key of the heap.
+     * 2. The children of each heap[i] are heap[d*i+1] .. heap[d*i+d].
+     * 3. The parent of each heap[i] (except heap[0]) is heap[(i-1)/d].
+     * 4. The priority of the parent of each heap[i] is <= the priority of heap[i].
+     * 5. For each key k in the heap, priority[k] is its priority and
+     * position[k] is its index in heap; position[k] is -1 for every key
+     * not in the heap.
+     */
+    private final int[] heap;
+    private final int[] position;
+    private final double[] priority;
+
+    /**
+     * Constructor: an empty binary heap for keys 0..capacity-1.
+     */
+    public IndexMinHeap(int capacity) {
+        this(capacity, 2);
+    }
+
+    /**
+     * Constructor: an empty heap of arity d for keys 0..capacity-1.
+     * Throw an IllegalArgumentException unless d is 2, 4 or 8.
+     */
+    public IndexMinHeap(int capacity, int d) {
+        if (d != 2 && d != 4 && d != 8) {
+            throw new IllegalArgumentException("Arity must be 2, 4 or 8");
+        }
+        arity = d;
+        heap = new int[capacity];
+        position = new int[capacity];
+        priority = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Return the number of keys in the priority queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return true iff the priority queue is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return true iff key k is in the priority queue.
+     */
+    public boolean contains(int k) {
+        return position[k] >= 0;
+    }
+
+    /**
+     * Return the priority of key k.
+     * Throw an IllegalArgumentException if k is not in the priority queue.
+     */
+    public double getPriority(int k) {
+        if (position[k] < 0) {
+            throw new IllegalArgumentException("No element found: " + k);
+        }
+        return priority[k];
+    }
+
+    /**
+     * Add key k with priority p to the priority queue.
+     * Throw an IllegalArgumentException if k is already in the queue.
+     */
+    public void add(int k, double p) {
+        if (position[k] >= 0) {
+            throw new IllegalArgumentException("Cannot insert the same element twice");
+        }
+        priority[k] = p;
+        bubbleUp(k, size);
+        size++;
+    }
+
+    /**
+     * Return the key with lowest priority, without changing the queue.
+     * Throw a NoSuchElementException if the priority queue is empty.
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * Remove and return the key with lowest priority.
+     * Throw a NoSuchElementException if the priority queue is empty.
+     */
+    public int poll() {
+        int k = peek();
+        position[k] = -1;
+        size--;
+        if (size > 0) {
+            bubbleDown(heap[size], 0);
+        }
+        return k;
+    }
+
+    /**
+     * Change the priority of key k to p.
+     * Throw an IllegalArgumentException if k is not in the priority queue.
+     */
+    public void changePriority(int k, double p) {
+        int i = position[k];
+        if (i < 0) {
+            throw new IllegalArgumentException("No element found: " + k);
+        }
+
+        if (p < priority[k]) {
+            priority[k] = p;
+            bubbleUp(k, i);
+        } else {
+            priority[k] = p;
+            bubbleDown(k, i);
+        }
+    }
+
+    /**
+     * Remove every key from the priority queue.
+     * This takes time proportional to the number of keys in it, not to the capacity.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Put key k in heap[i] and bubble it up to its right place.
+     * Precondition: Every heap[j] satisfies the heap property except that
+     * heap[i] is considered to be empty.
+     */
+    private void bubbleUp(int k, int i) {
+        double p = priority[k];
+        while (i > 0) {
+            int parentIdx = (i - 1) / arity;
+            int parent = heap[parentIdx];
+            if (priority[parent] <= p) {
+                break;
+            }
+
+            heap[i] = parent;
+            position[parent] = i;
+
+            i = parentIdx;
+        }
+        heap[i] = k;
+        position[k] = i;
+    }
+
+    /**
+     * Put key k in heap[i] and bubble it down until it finds its right place.
+     * Precondition: Every heap[j] satisfies the heap property except that
+     * heap[i] is considered to be empty.
+     */
+    private void bubbleDown(int k, int i) {
+        double p = priority[k];
+        while (true) {
+            int first = arity * i + 1;
+            if (first >= size) {
+                break;
+            }
+
+            // Find the smallest child of heap[i].
+            int last = Math.min(first + arity, size);
+            int childIdx = first;
+            double childPriority = priority[heap[first]];
+            for (int c = first + 1; c < last; c++) {
+                double cp = priority[heap[c]];
+                if (cp < childPriority) {
+                    childIdx = c;
+                    childPriority = cp;
+                }
+            }
+
+            if (p <= childPriority) {
+                break;
+            }
+
+            int child = heap[childIdx];
+            heap[i] = child;
+            position[child] = i;
+
+            i = childIdx;
+        }
+        heap[i] = k;
+        position[k] = i;
+    }
+}
@@ -0,0 +1,14 @@
+package game;
+
+/**
+ * A callback given each neighbour of the current location by
+ * ExplorationState.forEachNeighbour.
+ */
+@FunctionalInterface
+public interface NeighbourVisitor {
+    /**
+     * Visit the neighbour with the given id, which is distanceToTarget away from
+     * the target along the grid (as in NodeStatus).
+     */
+    void visit(long id, int distanceToTarget);
+}
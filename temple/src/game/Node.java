@@ -1,7 +1,6 @@
 package game;
 
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
@@ -9,58 +8,34 @@ import java.util.Set;
  * An instance represents a node in the graph --the cavern.
  */
 public class Node {
-    /**
-     * The least positive fresh identifier available
-     */
-    private static long FRESH_ID = 0;
-
     /**
      * The unique numerical identifier of this Node
      */
     private final long id;
-    /**
-     * Represents the edges outgoing from this Node
-     */
-    private final Set<Edge> edges;
-    private final Set<Node> neighbours;
-
-    private final Set<Edge> unmodifiableEdges;
-    private final Set<Node> unmodifiableNeighbours;
-
     /**
      * Extra state that belongs to this node
      */
     private final Tile tile;
 
-    /* package */ Node(Tile t) {
-        this(FRESH_ID, t);
-    }
+    /**
+     * The graph holding the edges outgoing from this Node, and this Node's
+     * index in it (null and -1 for a node that is not in a graph, e.g. a wall)
+     */
+    /* package */ CavernGraph graph;
+    /* package */ int index = -1;
 
     /**
      * Constructor: an instance with id givenId and tile t
      */
     /* package */ Node(long givenId, Tile t) {
         id = givenId;
-        FRESH_ID = Math.max(FRESH_ID, givenId + 1);
-        edges = new HashSet<>();
-        neighbours = new HashSet<>();
-
-        unmodifiableEdges = Collections.unmodifiableSet(edges);
-        unmodifiableNeighbours = Collections.unmodifiableSet(neighbours);
-
         tile = t;
     }
 
-    /**
-     * Add edge e to the graph.
-     */
-    /* package */ void addEdge(Edge e) {
-        edges.add(e);
-        neighbours.add(e.getOther(this));
-    }
-
     /**
      * Return the unique Identifier of this Node.
+     * Ids are unique within a cavern, and the open nodes of a cavern with
+     * n open tiles have the ids 0..n-1, so they can index plain arrays.
      */
     public long getId() {
         return id;
@@ -68,29 +43,55 @@ public class Node {
 
     /**
      * Returns the Edge of this Node that connects to q.
+     * This takes constant time: the edge is looked up by the direction of q.
      * .     * Throw an IllegalArgumentException if there is no such edge.
      */
     public Edge getEdge(Node q) {
-        for (Edge e : edges) {
-            if (e.getDest().equals(q)) {
-                return e;
-            }
+        Edge e = findEdge(q);
+        if (e == null) {
+            throw new IllegalArgumentException("getEdge: Node must be a neighbour of this Node");
         }
-        throw new IllegalArgumentException("getEdge: Node must be a neighbour of this Node");
+        return e;
+    }
+
+    /**
+     * Return the Edge of this Node that connects to q, or null if there is none.
+     */
+    /* package */ Edge findEdge(Node q) {
+        int k = (graph == null || q.graph != graph ? -1 : graph.find(index, q.index));
+        return (k < 0 ? null : graph.edge(k));
+    }
+
+    /**
+     * Return the Edge leaving this Node in direction d, or null if there is none.
+     * This takes constant time and allocates nothing.
+     */
+    public Edge getExit(Cavern.Direction d) {
+        int k = (graph == null ? -1 : graph.slot(index, d.ordinal()));
+        return (k < 0 ? null : graph.edge(k));
+    }
+
+    /**
+     * Return the neighbour of this Node in direction d, or null if there is none.
+     * This takes constant time and allocates nothing.
+     */
+    public Node getNeighbour(Cavern.Direction d) {
+        int k = (graph == null ? -1 : graph.slot(index, d.ordinal()));
+        return (k < 0 ? null : graph.node(graph.targets()[k]));
     }
 
     /**
      * Return an unmodifiable set of Edges leaving this Node.
      */
     public Set<Edge> getExits() {
-        return unmodifiableEdges;
+        return (graph == null ? Collections.emptySet() : graph.exitSet(index));
     }
 
     /**
      * Return an unmodifiable set Nodes neighbouring this Node.
      */
     public Set<Node> getNeighbours() {
-        return unmodifiableNeighbours;
+        return (graph == null ? Collections.emptySet() : graph.neighbourSet(index));
     }
 
     /**
@@ -0,0 +1,21 @@
+package game;
+
+/**
+ * An instance hands out the ids of the open nodes of one cavern, densely from 0
+ * in the order the nodes are created. Every cavern is built with its own
+ * allocator and only the thread building it uses it, so caverns can be
+ * generated or read concurrently without sharing any counter.
+ * Open nodes are added to the cavern's graph in the order they are created,
+ * so each open node's id is also its index in the graph.
+ */
+final class NodeIdAllocator {
+
+    private long next;
+
+    /**
+     * Return the next free id.
+     */
+    long next() {
+        return next++;
+    }
+}
@@ -0,0 +1,138 @@
+package game;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Single-source shortest-path engines over a CavernGraph.
+ * When every edge weight is at most Cavern.MAX_EDGE_WEIGHT, a bucket queue
+ * replaces the comparison heap, since all tentative distances in the queue are
+ * then within MAX_EDGE_WEIGHT of each other. Full distance fields of large
+ * graphs are computed in parallel by DeltaStepping when there are processors for it.
+ */
+final class ShortestPaths {
+
+    private ShortestPaths() {
+    }
+
+    /**
+     * Run Dijkstra's algorithm on graph from node source until node dest is settled
+     * (or until every reachable node is settled if dest is -1) and return the distance
+     * to dest (-1 if dest is -1 or unreachable).
+     * dist[i] is set to the distance to node i if it was reached, -1 otherwise;
+     * if parent is not null, parent[i] is set to the node before i on a shortest
+     * path to it (-1 for source and for unreached nodes).
+     * Distances of nodes that were reached but not settled are upper bounds.
+     * A full field (dest -1, no parent) of a graph with at least
+     * DeltaStepping.PARALLEL_THRESHOLD nodes is computed by DeltaStepping on the
+     * common pool if it has at least DeltaStepping.MIN_PARALLELISM workers; the
+     * distances are the same.
+     * Precondition: dist (and parent, if given) have length graph.size().
+     */
+    static int search(CavernGraph graph, int source, int dest, int[] dist, int[] parent) {
+        if (dest < 0 && parent == null && graph.size() >= DeltaStepping.PARALLEL_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() >= DeltaStepping.MIN_PARALLELISM) {
+            DeltaStepping.search(graph, source, dist, DeltaStepping.DEFAULT_DELTA, ForkJoinPool.commonPool());
+            return -1;
+        }
+        Arrays.fill(dist, -1);
+        if (parent != null) {
+            Arrays.fill(parent, -1);
+        }
+        if (graph.maxWeight() <= Cavern.MAX_EDGE_WEIGHT) {
+            return bucketSearch(graph, source, dest, dist, parent);
+        }
+        return heapSearch(graph, source, dest, dist, parent);
+    }
+
+    /**
+     * Implementation of search using a BucketQueue.
+     * Precondition: dist and parent are filled with -1, and no edge is
+     * longer than Cavern.MAX_EDGE_WEIGHT.
+     */
+    static int bucketSearch(CavernGraph graph, int source, int dest, int[] dist, int[] parent) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+
+        BucketQueue frontier = new BucketQueue(graph.size(), Cavern.MAX_EDGE_WEIGHT);
+        boolean[] settled = new boolean[graph.size()];
+
+        dist[source] = 0;
+        frontier.add(source, 0);
+        while (!frontier.isEmpty()) {
+            int f = frontier.poll();
+            settled[f] = true;
+            if (f == dest) {
+                return dist[f];
+            }
+
+            int fDist = dist[f];
+            for (int k = offsets[f]; k < offsets[f + 1]; k++) {
+                int w = targets[k];
+                if (settled[w]) {
+                    continue;
+                }
+                int distThroughF = fDist + weights[k];
+                if (dist[w] < 0) {
+                    dist[w] = distThroughF;
+                    frontier.add(w, distThroughF);
+                } else if (distThroughF < dist[w]) {
+                    dist[w] = distThroughF;
+                    frontier.decreasePriority(w, distThroughF);
+                } else {
+                    continue;
+                }
+                if (parent != null) {
+                    parent[w] = f;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Implementation of search using an IndexMinHeap.
+     * Precondition: dist and parent are filled with -1.
+     */
+    static int heapSearch(CavernGraph graph, int source, int dest, int[] dist, int[] parent) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+
+        IndexMinHeap frontier = new IndexMinHeap(graph.size(), 4);
+        boolean[] settled = new boolean[graph.size()];
+
+        dist[source] = 0;
+        frontier.add(source, 0);
+        while (!frontier.isEmpty()) {
+            int f = frontier.poll();
+            settled[f] = true;
+            if (f == dest) {
+                return dist[f];
+            }
+
+            int fDist = dist[f];
+            for (int k = offsets[f]; k < offsets[f + 1]; k++) {
+                int w = targets[k];
+                if (settled[w]) {
+                    continue;
+                }
+                int distThroughF = fDist + weights[k];
+                if (dist[w] < 0) {
+                    dist[w] = distThroughF;
+                    frontier.add(w, distThroughF);
+                } else if (distThroughF < dist[w]) {
+                    dist[w] = distThroughF;
+                    frontier.changePriority(w, distThroughF);
+                } else {
+                    continue;
+                }
+                if (parent != null) {
+                    parent[w] = f;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,91 @@
+package game;
+
+import java.util.Random;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Speculative parallel generation: rounds of k candidate caverns are generated at
+ * once, each from its own seed, and the lowest-index candidate that passes wins.
+ * <p>
+ * The k seeds of a round are drawn from the caller's Random before any candidate
+ * starts, and whether a candidate passes depends only on its seed, so the cavern
+ * returned is the same however the candidates are scheduled. Once a candidate
+ * passes, candidates after it that have not started are cancelled; those already
+ * running finish and are discarded.
+ * <p>
+ * Candidates are forked into the current ForkJoinPool (the common pool if the
+ * caller is not in one).
+ */
+final class SpeculativeGeneration {
+
+    private SpeculativeGeneration() {
+    }
+
+    /**
+     * Return the first cavern that attempt accepts, trying rounds of k candidates at
+     * once. attempt is given a seed and returns the cavern generated from it if that
+     * cavern passes, null otherwise. Record the work done in stats, if it is not null.
+     * Precondition: k > 0, and attempt can be called by several threads at once.
+     */
+    static Cavern firstAccepted(Random rand, int k, LongFunction<Cavern> attempt, GenerationStats stats) {
+        while (true) {
+            AtomicInteger accepted = new AtomicInteger(k); // lowest index that has passed
+            Candidate[] candidates = new Candidate[k];
+            for (int i = 0; i < k; i++) {
+                candidates[i] = new Candidate(i, rand.nextLong(), attempt, accepted);
+            }
+            for (int i = k - 1; i >= 0; i--) {
+                candidates[i].fork(); // the lowest indices end up first in line to be run here
+            }
+
+            for (int i = 0; i < k; i++) {
+                Cavern cavern = candidates[i].join();
+                if (stats != null) {
+                    stats.recordCandidate(cavern != null);
+                }
+                if (cavern != null) {
+                    for (int j = i + 1; j < k; j++) {
+                        candidates[j].cancel(false);
+                    }
+                    if (stats != null) {
+                        stats.recordCancelled(k - i - 1);
+                    }
+                    return cavern;
+                }
+            }
+        }
+    }
+
+    /**
+     * An instance generates one candidate cavern, unless a candidate with a lower
+     * index has already passed by the time it starts.
+     */
+    @SuppressWarnings("serial")
+    private static final class Candidate extends RecursiveTask<Cavern> {
+        private final int index;
+        private final long seed;
+        private final LongFunction<Cavern> attempt;
+        private final AtomicInteger accepted;
+
+        private Candidate(int i, long s, LongFunction<Cavern> a, AtomicInteger acc) {
+            index = i;
+            seed = s;
+            attempt = a;
+            accepted = acc;
+        }
+
+        @Override
+        protected Cavern compute() {
+            if (accepted.get() < index) {
+                return null;
+            }
+            Cavern cavern = attempt.apply(seed);
+            if (cavern != null) {
+                accepted.accumulateAndGet(index, Math::min);
+            }
+            return cavern;
+        }
+    }
+}
@@ -1,15 +1,47 @@
 package main;
 
+import game.GameResult;
 import game.GameState;
+import game.GenerationMode;
+import game.GenerationStats;
+import student.Explorer;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Runs the program via the text (console) interface.
+ * <p>
+ * With -p [workers], the -n games are run as a parallel batch on a pool of the given
+ * number of worker threads (all processors if no number is given). Game i is generated
+ * from a seed derived from the base seed (-s, or a random one) and i, so a batch gives
+ * the same results however its games are scheduled. A summary of throughput, scores
+ * and phase timings is printed at the end instead of a report per game.
+ * <p>
+ * With -size ROWSxCOLS, every game is played on caverns of that size instead of a random
+ * size no larger than 25 x 40. Caverns of thousands by thousands of tiles are supported,
+ * but a game on them is not quick: at 1000 x 1000 with -gen constructive, on one core,
+ * generating its two caverns takes about 1.4-2 s, exploring under 0.2 s and escaping
+ * (with the default rounds) 1-2 s; one shortest-path search takes about 50 ms.
+ * -gen constructive gives the most predictable generation time at that size, as it
+ * never generates a cavern twice.
+ * <p>
+ * With -gen constructive, caverns are generated in one pass each instead of being
+ * regenerated until they meet their constraints, and with -gen parallel, several
+ * candidates are generated at once (see GenerationMode). The work generation did,
+ * including the retries avoided and the candidates cancelled, is printed at the end.
+ * <p>
+ * By default the explorer plans each escape with a fixed number of beam-search rounds
+ * (Explorer.DEFAULT_ESCAPE_ROUNDS), so a seed always gives the same score, alone or in a
+ * batch on any number of workers. With -deadline [millis], it plans against a wall-clock
+ * deadline instead (Explorer.DEFAULT_ESCAPE_DEADLINE_MILLIS if no number is given); scores
+ * then depend on the speed and load of the machine.
  */
 public class TXTmain {
     public static void main(String[] args) throws IOException {
@@ -24,16 +56,198 @@ public class TXTmain {
             }
         }
         Optional<Long> seed = Utilities.parseSeedArgs(args);
+        int[] size = parseSize(argList);
+        GenerationMode mode = parseGenerationMode(argList);
+        GenerationStats stats = new GenerationStats();
+        long deadline = parseDeadline(argList);
+
+        int parallelIndex = argList.indexOf("-p");
+        if (parallelIndex >= 0) {
+            int workers = Runtime.getRuntime().availableProcessors();
+            if (parallelIndex + 1 < argList.size() && !argList.get(parallelIndex + 1).startsWith("-")) {
+                try {
+                    workers = Math.max(Integer.parseInt(argList.get(parallelIndex + 1)), 1);
+                } catch (NumberFormatException e) {
+                    System.err.println("Couldn't parse argument for -p option");
+                }
+            }
+            runBatch(numTimesToRun, seed.isPresent() ? seed.get() : System.nanoTime(), workers, size, mode, stats,
+                    deadline);
+            printGenerationStats(mode, stats);
+            return;
+        }
 
         int totalScore = 0;
 
         for (int i = 0; i < numTimesToRun; i++) {
-            totalScore += GameState.runNewGame((seed.isPresent() ? seed.get() : 0), false);
+            totalScore += GameState.runNewGame((seed.isPresent() ? seed.get() : 0), false, size[0], size[1],
+                    mode, stats, deadline);
             System.out.println();
         }
 
         if (totalScore != 0) System.out.println("Average score : " + totalScore / numTimesToRun);
+        printGenerationStats(mode, stats);
+    }
+
+    /**
+     * Return the {rows, cols} given by the -size option of argList, or {0, 0}
+     * (meaning a random size) if there is none or it cannot be parsed.
+     */
+    private static int[] parseSize(List<String> argList) {
+        int sizeIndex = argList.indexOf("-size");
+        if (sizeIndex >= 0) {
+            try {
+                String[] parts = argList.get(sizeIndex + 1).split("x");
+                int rows = Integer.parseInt(parts[0]);
+                int cols = Integer.parseInt(parts[1]);
+                if (rows > 0 && cols > 0) {
+                    return new int[]{rows, cols};
+                }
+            } catch (Exception e) {
+                // fall through to the error message
+            }
+            System.err.println("Error, -size must be followed by a size such as 1000x1000");
+        }
+        return new int[]{0, 0};
+    }
+
+    /**
+     * Return the escape planning deadline in milliseconds given by the -deadline option
+     * of argList (Explorer.DEFAULT_ESCAPE_DEADLINE_MILLIS if it has no number), or 0
+     * (meaning plan by rounds) if there is none.
+     */
+    private static long parseDeadline(List<String> argList) {
+        int deadlineIndex = argList.indexOf("-deadline");
+        if (deadlineIndex < 0) {
+            return 0;
+        }
+        if (deadlineIndex + 1 < argList.size() && !argList.get(deadlineIndex + 1).startsWith("-")) {
+            try {
+                return Math.max(Long.parseLong(argList.get(deadlineIndex + 1)), 1);
+            } catch (NumberFormatException e) {
+                System.err.println("Couldn't parse argument for -deadline option");
+            }
+        }
+        return Explorer.DEFAULT_ESCAPE_DEADLINE_MILLIS;
+    }
+
+    /**
+     * Return the generation mode given by the -gen option of argList (REJECTION if there is none).
+     */
+    private static GenerationMode parseGenerationMode(List<String> argList) {
+        int genIndex = argList.indexOf("-gen");
+        if (genIndex >= 0) {
+            try {
+                return GenerationMode.valueOf(argList.get(genIndex + 1).toUpperCase());
+            } catch (Exception e) {
+                System.err.println("Error, -gen must be followed by rejection, constructive or parallel");
+            }
+        }
+        return GenerationMode.REJECTION;
     }
 
+    /**
+     * Print the work that generation in the given mode did, as recorded in stats.
+     */
+    private static void printGenerationStats(GenerationMode mode, GenerationStats stats) {
+        System.out.println("Generation (" + mode.name().toLowerCase() + ") : " + stats);
+    }
 
+    /**
+     * Run n headless games on a pool of workers threads, game i using the seed
+     * deriveSeed(baseSeed, i) and caverns of the given {rows, cols} size (random if
+     * rows is 0) generated in the given mode, and print a summary of the batch.
+     * Escapes are planned against a deadline of deadline milliseconds, or by rounds if it is 0.
+     * Record the work generation did in stats.
+     */
+    private static void runBatch(int n, long baseSeed, int workers, int[] size,
+                                 GenerationMode mode, GenerationStats stats, long deadline) {
+        System.out.println("Base seed : " + baseSeed);
+        System.out.println("Games     : " + n + " on " + workers + " workers");
+        System.out.println("Escape    : " + (deadline > 0 ? deadline + " ms deadline" : "fixed rounds"));
+
+        GameResult[] results = new GameResult[n];
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        long start = System.nanoTime();
+        try {
+            pool.submit(() -> IntStream.range(0, n).parallel()
+                    .forEach((i) -> results[i] = GameState.runHeadlessGame(deriveSeed(baseSeed, i), size[0], size[1],
+                            mode, stats, deadline)))
+                    .get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e);
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        printSummary(results, elapsed);
+    }
+
+    /**
+     * Return the seed of game i of a batch with base seed baseSeed.
+     * This mixes the two with the SplitMix64 finaliser so that the seeds of
+     * consecutive games are unrelated, and never returns 0 (which means "random").
+     */
+    static long deriveSeed(long baseSeed, int i) {
+        long z = baseSeed + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z == 0 ? 1 : z);
+    }
+
+    /**
+     * Print throughput, the score distribution and mean phase timings of results,
+     * a batch that took elapsedNanos of wall-clock time.
+     */
+    private static void printSummary(GameResult[] results, long elapsedNanos) {
+        int n = results.length;
+        int[] scores = new int[n];
+        long totalScore = 0;
+        long generate = 0;
+        long explore = 0;
+        long escape = 0;
+        int exploreFailures = 0;
+        int escapeFailures = 0;
+        for (int i = 0; i < n; i++) {
+            GameResult r = results[i];
+            scores[i] = r.getScore();
+            totalScore += r.getScore();
+            generate += r.getGenerateNanos();
+            explore += r.getExploreNanos();
+            escape += r.getEscapeNanos();
+            if (!r.getExploreSucceeded()) exploreFailures++;
+            else if (!r.getEscapeSucceeded()) escapeFailures++;
+        }
+        Arrays.sort(scores);
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.println(String.format("Wall time       : %.2f s", seconds));
+        System.out.println(String.format("Games/second    : %.1f", n / seconds));
+        System.out.println("Failures        : " + exploreFailures + " explore, " + escapeFailures + " escape");
+        System.out.println();
+        System.out.println("Average score   : " + totalScore / n);
+        System.out.println("Score min       : " + scores[0]);
+        System.out.println("Score p10       : " + percentile(scores, 10));
+        System.out.println("Score p25       : " + percentile(scores, 25));
+        System.out.println("Score median    : " + percentile(scores, 50));
+        System.out.println("Score p75       : " + percentile(scores, 75));
+        System.out.println("Score p90       : " + percentile(scores, 90));
+        System.out.println("Score max       : " + scores[n - 1]);
+        System.out.println();
+        System.out.println(String.format("Generate (mean) : %.3f ms/game", generate / 1e6 / n));
+        System.out.println(String.format("Explore (mean)  : %.3f ms/game", explore / 1e6 / n));
+        System.out.println(String.format("Escape (mean)   : %.3f ms/game", escape / 1e6 / n));
+    }
+
+    /**
+     * Return the p-th percentile of sorted (nearest-rank).
+     * Precondition: sorted is sorted and not empty, and 0 < p <= 100.
+     */
+    private static int percentile(int[] sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
 }
@@ -0,0 +1,148 @@
+package student;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * An instance finds shortest routes in an EscapeGraph with A*, keeping the open set
+ * in a DistanceHeap of (estimated total, node) pairs and the distances, parents and
+ * closed set in arrays indexed by node, so that a search creates no objects per node.
+ * A node is added to the heap again when a shorter route to it is found, and stale
+ * pairs are skipped when they are polled.
+ * <p>
+ * Alternatively, the search can be given a source of student PriorityQueues (such
+ * as PriorityQueueImpl::new or PairingHeap::new), and then keeps each open node in
+ * the queue once, lowering its priority with updatePriority when a shorter route to
+ * it is found.
+ * <p>
+ * Edges have their true lengths. The heuristic is the Manhattan distance to the
+ * goal times the length of the shortest edge in the graph, which never overestimates
+ * (every step changes the row or the column by one and costs at least that much)
+ * and is consistent, so the first time the goal is polled its route is shortest.
+ */
+final class AStar {
+
+    private final EscapeGraph graph;
+    private final int[] dist;
+    private final int[] parent;
+    private final boolean[] closed;
+    private final DistanceHeap open = new DistanceHeap();
+    private final Supplier<PriorityQueue<Integer>> queues; // null to use open
+
+    /**
+     * Constructor: a search over graph using a DistanceHeap.
+     */
+    AStar(EscapeGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Constructor: a search over graph using an empty queue from queues for each
+     * route, or a DistanceHeap if queues is null.
+     */
+    AStar(EscapeGraph graph, Supplier<PriorityQueue<Integer>> queues) {
+        this.graph = graph;
+        this.queues = queues;
+        int n = graph.size();
+        dist = new int[n];
+        parent = new int[n];
+        closed = new boolean[n];
+    }
+
+    /**
+     * Return a shortest route from node source to node goal, with the gold on its nodes.
+     * Throw an IllegalArgumentException if goal cannot be reached from source.
+     */
+    EscapeRoute route(int source, int goal) {
+        Arrays.fill(dist, -1);
+        Arrays.fill(closed, false);
+        if (queues != null) {
+            return route(source, goal, queues.get());
+        }
+
+        open.clear();
+        dist[source] = 0;
+        parent[source] = -1;
+        open.add(source, estimate(source, goal));
+        while (!open.isEmpty()) {
+            int f = DistanceHeap.node(open.poll());
+            if (closed[f]) {
+                continue; // stale
+            }
+            if (f == goal) {
+                return routeTo(goal);
+            }
+            closed[f] = true;
+            for (int k = graph.offsets[f]; k < graph.offsets[f + 1]; k++) {
+                int w = graph.targets[k];
+                int dw = dist[f] + graph.weights[k];
+                if (closed[w] || (dist[w] >= 0 && dw >= dist[w])) {
+                    continue;
+                }
+                dist[w] = dw;
+                parent[w] = f;
+                open.add(w, dw + estimate(w, goal));
+            }
+        }
+        throw new IllegalArgumentException("Node " + goal + " cannot be reached from node " + source);
+    }
+
+    /**
+     * Return a shortest route from node source to node goal, with the gold on its nodes,
+     * keeping the open set in the empty queue open.
+     * Throw an IllegalArgumentException if goal cannot be reached from source.
+     * Precondition: dist is all -1 and closed is all false.
+     */
+    private EscapeRoute route(int source, int goal, PriorityQueue<Integer> open) {
+        dist[source] = 0;
+        parent[source] = -1;
+        open.add(source, estimate(source, goal));
+        while (open.size() > 0) {
+            int f = open.poll();
+            if (f == goal) {
+                return routeTo(goal);
+            }
+            closed[f] = true;
+            for (int k = graph.offsets[f]; k < graph.offsets[f + 1]; k++) {
+                int w = graph.targets[k];
+                int dw = dist[f] + graph.weights[k];
+                if (closed[w] || (dist[w] >= 0 && dw >= dist[w])) {
+                    continue;
+                }
+                if (dist[w] < 0) {
+                    open.add(w, dw + estimate(w, goal));
+                } else {
+                    open.updatePriority(w, dw + estimate(w, goal));
+                }
+                dist[w] = dw;
+                parent[w] = f;
+            }
+        }
+        throw new IllegalArgumentException("Node " + goal + " cannot be reached from node " + source);
+    }
+
+    /**
+     * Return the heuristic estimate of the distance from node v to node goal.
+     */
+    private int estimate(int v, int goal) {
+        return graph.minWeight * (Math.abs(graph.row[v] - graph.row[goal])
+                + Math.abs(graph.column[v] - graph.column[goal]));
+    }
+
+    /**
+     * Return the route the search found to node goal.
+     */
+    private EscapeRoute routeTo(int goal) {
+        int len = 0;
+        for (int v = goal; v >= 0; v = parent[v]) {
+            len++;
+        }
+        int[] path = new int[len];
+        int gold = 0;
+        for (int v = goal, i = len - 1; v >= 0; v = parent[v], i--) {
+            path[i] = v;
+            gold += graph.gold[v];
+        }
+        return new EscapeRoute(path, dist[goal], gold);
+    }
+}
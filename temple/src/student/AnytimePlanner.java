@@ -0,0 +1,182 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An instance plans an escape route within a budget of beam-search rounds or,
+ * if asked, within a wall-clock deadline.
+ * <p>
+ * It first finds a safe baseline, the shortest route to the exit, with AStar, and
+ * then improves on it with a BeamSearchPlanner, which begins by computing the
+ * distances to the exit from every node. With a budget of rounds the search runs on
+ * the calling thread and the route depends only on the cavern, so games can be
+ * replayed. With a deadline it runs on another thread; when the deadline passes (or
+ * the search ends, if that is sooner) the search is stopped, which it notices within
+ * a few hundred steps, and waited for, and the best route found so far is returned.
+ * Every route it can return reaches the exit within the time budget.
+ * <p>
+ * The time and gold of the baseline and of each improvement are recorded in a trace,
+ * so that the budget can be tuned against how late improvements still come.
+ */
+final class AnytimePlanner {
+
+    private final EscapeGraph graph;
+    private final int budget;
+    private final long startNanos;
+    private final List<Improvement> trace = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean stopped;
+    private volatile BeamSearchPlanner beam; // set once the search has its distances
+
+    /**
+     * Constructor: a planner for routes in graph from its start to its exit of length
+     * at most timeBudget, whose planning began at System.nanoTime() startNanos (which
+     * the trace is timed from).
+     */
+    AnytimePlanner(EscapeGraph graph, int timeBudget, long startNanos) {
+        this.graph = graph;
+        budget = timeBudget;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Return the best route found in at most rounds rounds of beam search.
+     */
+    EscapeRoute plan(int rounds) {
+        EscapeRoute baseline = baseline();
+        started.set(true);
+        improve(rounds);
+        return better(baseline);
+    }
+
+    /**
+     * Return the best route found by System.nanoTime() deadlineNanos.
+     * The baseline is always found, even if that takes longer.
+     */
+    EscapeRoute planUntil(long deadlineNanos) {
+        EscapeRoute baseline = baseline();
+        if (deadlineNanos - System.nanoTime() <= 0) {
+            return baseline;
+        }
+
+        CompletableFuture<Void> search = CompletableFuture.runAsync(() -> {
+            if (started.compareAndSet(false, true)) {
+                improve(Integer.MAX_VALUE);
+            }
+        });
+        try {
+            search.get(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // the deadline passed: take the best route so far
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Escape search failed", e.getCause());
+        } finally {
+            stopped = true;
+        }
+
+        // A search that has not started never will; one that has is waited for,
+        // so that no work is left running once the route is returned.
+        if (!started.compareAndSet(false, true)) {
+            try {
+                search.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Escape search failed", e.getCause());
+            }
+        }
+        return better(baseline);
+    }
+
+    /**
+     * Return the shortest route to the exit, recording it in the trace.
+     */
+    private EscapeRoute baseline() {
+        EscapeRoute baseline = new AStar(graph).route(graph.start, graph.exit);
+        record(baseline.gold());
+        return baseline;
+    }
+
+    /**
+     * Return the best route the search found if it has more gold than baseline,
+     * and baseline otherwise.
+     */
+    private EscapeRoute better(EscapeRoute baseline) {
+        BeamSearchPlanner b = beam;
+        EscapeRoute best = (b == null ? null : b.best());
+        return (best != null && best.gold() > baseline.gold() ? best : baseline);
+    }
+
+    /**
+     * Compute the distances to the exit and search for better routes for at most
+     * rounds rounds or until stopped.
+     */
+    private void improve(int rounds) {
+        int[] toExit = graph.distancesFrom(graph.exit, () -> stopped);
+        if (toExit == null) {
+            return;
+        }
+        BeamSearchPlanner b = new BeamSearchPlanner(graph, budget, toExit,
+                BeamSearchPlanner.DEFAULT_BEAM_WIDTH, BeamSearchPlanner.DEFAULT_BRANCHING);
+        beam = b;
+        b.search(rounds, () -> stopped, this::record);
+    }
+
+    /**
+     * Record that a route collecting gold gold has been found.
+     */
+    private void record(int gold) {
+        trace.add(new Improvement(System.nanoTime() - startNanos, gold));
+    }
+
+    /**
+     * Return the trace of the last plan: the baseline and then each improvement on it,
+     * in the order they were found.
+     */
+    List<Improvement> trace() {
+        synchronized (trace) {
+            return new ArrayList<>(trace);
+        }
+    }
+
+    /**
+     * An instance records that a route collecting some gold was found some time after
+     * planning started.
+     */
+    static final class Improvement {
+        private final long nanos;
+        private final int gold;
+
+        private Improvement(long ns, int g) {
+            nanos = ns;
+            gold = g;
+        }
+
+        /**
+         * Return the time from the start of planning to when the route was found, in nanoseconds.
+         */
+        long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Return the gold the route collects.
+         */
+        int getGold() {
+            return gold;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f ms: %d gold", nanos / 1e6, gold);
+        }
+    }
+}
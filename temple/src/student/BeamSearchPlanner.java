@@ -0,0 +1,439 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * An instance plans an escape route that collects as much gold as it can within a
+ * time budget (an orienteering problem), by beam search over partial routes.
+ * <p>
+ * A partial route runs from the start to some node, having collected the gold on the
+ * way. It is extended by going along a shortest path to one of the nearest nodes with
+ * gold it has not collected; the beamWidth best extensions of the current routes are
+ * kept for the next round. Every partial route satisfies
+ * time used + distance from its node to the exit <= budget,
+ * using a distance-to-exit field computed once, so any of them can be completed by
+ * the shortest path to the exit; extensions that would break this are never made.
+ * The best completed route seen is returned.
+ * <p>
+ * The routes of a round are extended in parallel, and the result does not depend on
+ * how that work is scheduled. A search can be limited to a number of rounds, which
+ * keeps it deterministic, or stopped from outside, which it notices within a round.
+ */
+final class BeamSearchPlanner {
+
+    static final int DEFAULT_BEAM_WIDTH = 32;
+    static final int DEFAULT_BRANCHING = 8;
+
+    /**
+     * Partial routes rank by gold collected (most first), then time used (least first),
+     * then node, so that the order is total and the search deterministic.
+     */
+    private static final Comparator<Partial> RANK = Comparator.comparingInt((Partial p) -> -p.gold)
+            .thenComparingInt((p) -> p.time)
+            .thenComparingInt((p) -> p.node);
+
+    private final EscapeGraph graph;
+    private final int budget;
+    private final int[] toExit;
+    private final int beamWidth;
+    private final int branching;
+    private final Queue<SearchSpace> spaces = new ConcurrentLinkedQueue<>();
+    private volatile Partial best; // the best route so far, completed
+    private int[] exitGold;
+    private BooleanSupplier stopped;
+    private IntConsumer onImprovement;
+
+    /**
+     * Constructor: a planner for routes in graph from its start to its exit of length at
+     * most timeBudget, with the default beam width and branching.
+     */
+    BeamSearchPlanner(EscapeGraph graph, int timeBudget) {
+        this(graph, timeBudget, graph.distancesFrom(graph.exit), DEFAULT_BEAM_WIDTH, DEFAULT_BRANCHING);
+    }
+
+    /**
+     * Constructor: a planner for routes in graph from its start to its exit of length at
+     * most timeBudget, where exitField holds the distances to the exit (as computed by
+     * graph.distancesFrom(graph.exit)), keeping width partial routes per round and
+     * extending each toward at most branch gold nodes.
+     * Precondition: the shortest path from the start to the exit fits in timeBudget.
+     */
+    BeamSearchPlanner(EscapeGraph graph, int timeBudget, int[] exitField, int width, int branch) {
+        this.graph = graph;
+        budget = timeBudget;
+        toExit = exitField;
+        beamWidth = width;
+        branching = branch;
+    }
+
+    /**
+     * Return the array whose element v is the gold on the shortest path from node v
+     * down toExit to the exit (not counting v), or 0 if v cannot reach the exit.
+     * Return null if stopped returns true first.
+     */
+    private int[] exitGold() {
+        int n = graph.size();
+        int[] g = new int[n];
+        boolean[] done = new boolean[n];
+        int[] stack = new int[16];
+        for (int v = 0; v < n; v++) {
+            if ((v & EscapeGraph.STOP_CHECK_MASK) == 0 && stopped.getAsBoolean()) {
+                return null;
+            }
+            // Walk down to a node that is done, then fill in the nodes on the way back.
+            int size = 0;
+            int u = v;
+            while (!done[u] && toExit[u] > 0) {
+                if (size == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * size);
+                }
+                stack[size++] = u;
+                u = graph.next(u, toExit);
+            }
+            done[u] = true;
+            while (size > 0) {
+                int w = stack[--size];
+                g[w] = g[u] + graph.gold[u];
+                done[w] = true;
+                u = w;
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Return the best route found.
+     */
+    EscapeRoute plan() {
+        search(Integer.MAX_VALUE, () -> false, (g) -> { });
+        return best();
+    }
+
+    /**
+     * Search for at most maxRounds rounds, until there is nothing left to search or
+     * until stop returns true, calling improved with the gold of each new best route.
+     * stop is asked between rounds and every few hundred steps within one; once it
+     * returns true the search ends without finishing its round. A search that is not
+     * stopped gives the same best route on every run.
+     * best() may be called from another thread while this runs.
+     */
+    void search(int maxRounds, BooleanSupplier stop, IntConsumer improved) {
+        stopped = stop;
+        onImprovement = improved;
+        List<Partial> beam = List.of(root());
+        exitGold = exitGold();
+        if (exitGold == null) {
+            return;
+        }
+        for (int round = 0; round < maxRounds && !beam.isEmpty(); round++) {
+            if (stopped.getAsBoolean()) {
+                return;
+            }
+            beam = nextBeam(beam);
+        }
+        // Out of rounds: the routes of the last beam have not been considered yet.
+        for (Partial p : beam) {
+            consider(p);
+        }
+    }
+
+    /**
+     * Return the best route found so far, or null if search has not yet begun.
+     */
+    EscapeRoute best() {
+        Partial p = best;
+        return (p == null ? null : complete(p));
+    }
+
+    /**
+     * Return the partial route that has not left the start, making it the best route so far.
+     */
+    private Partial root() {
+        Partial root = new Partial(null, new int[0], graph.start, 0, graph.gold[graph.start]);
+        root.settle(graph.size());
+        root.complete();
+        best = root;
+        return root;
+    }
+
+    /**
+     * Return the beamWidth best extensions of the routes of beam, extending the
+     * routes in parallel. The list is empty if no route can be extended, or if the
+     * search was stopped during the round.
+     * <p>
+     * Of the routes of beam, the one with the most gold and those that cannot be
+     * extended are candidates for the best route: completing the others is left
+     * to their extensions, which have more gold.
+     */
+    private List<Partial> nextBeam(List<Partial> beam) {
+        List<List<Partial>> extensions = beam.parallelStream()
+                .map(this::extend)
+                .collect(Collectors.toList());
+        if (stopped.getAsBoolean()) {
+            return List.of(); // the extensions may be incomplete
+        }
+
+        consider(beam.get(0));
+        List<Partial> children = new ArrayList<>();
+        for (int i = 0; i < beam.size(); i++) {
+            if (extensions.get(i).isEmpty()) {
+                consider(beam.get(i));
+            }
+            children.addAll(extensions.get(i));
+        }
+        children.sort(RANK);
+
+        List<Partial> next = new ArrayList<>(beamWidth);
+        Partial last = null;
+        for (Partial p : children) {
+            if (next.size() == beamWidth) {
+                break;
+            }
+            // Routes that reach the same node at the same time with the same gold
+            // almost always collected the same nodes; keep one of them.
+            if (last == null || RANK.compare(last, p) != 0) {
+                next.add(p);
+                last = p;
+            }
+        }
+        next.parallelStream().forEach((p) -> p.settle(graph.size()));
+        // The routes of beam are only needed now for their segments.
+        for (Partial p : beam) {
+            p.collected = null;
+        }
+        return next;
+    }
+
+    /**
+     * Make p the best route if it is better than the best route so far.
+     * Precondition: p is settled.
+     */
+    private void consider(Partial p) {
+        // p.gold + exitGold[p.node] bounds the gold of p completed.
+        if (p.gold + exitGold[p.node] > best.completedGold && p.complete() > best.completedGold) {
+            best = p;
+            onImprovement.accept(p.completedGold);
+        }
+    }
+
+    /**
+     * Return the extensions of p: for each of the (at most branching) nearest nodes with
+     * gold that p has not collected and from which the exit can still be reached in time,
+     * p followed by a shortest path to that node.
+     */
+    private List<Partial> extend(Partial p) {
+        SearchSpace space = spaces.poll();
+        if (space == null) {
+            space = new SearchSpace(graph.size());
+        }
+        space.reset();
+        int remaining = budget - p.time;
+        List<Partial> out = new ArrayList<>(branching);
+
+        space.reach(p.node, 0, -1);
+        int polls = 0;
+        while (!space.heap.isEmpty() && out.size() < branching) {
+            if ((++polls & EscapeGraph.STOP_CHECK_MASK) == 0 && stopped.getAsBoolean()) {
+                break;
+            }
+            long top = space.heap.poll();
+            int f = DistanceHeap.node(top);
+            int d = DistanceHeap.distance(top);
+            if (d > space.dist[f]) {
+                continue; // stale
+            }
+            if (f != p.node && graph.gold[f] > 0 && !isCollected(p.collected, f)) {
+                out.add(child(p, f, d, space));
+            }
+            for (int k = graph.offsets[f]; k < graph.offsets[f + 1]; k++) {
+                int w = graph.targets[k];
+                int dw = d + graph.weights[k];
+                // A node from which the exit cannot be reached in time is on no feasible route.
+                if (dw + toExit[w] <= remaining && (!space.reached(w) || dw < space.dist[w])) {
+                    space.reach(w, dw, f);
+                }
+            }
+        }
+        spaces.add(space);
+        return out;
+    }
+
+    /**
+     * Return p followed by the path to node f of length d found by the search in space.
+     */
+    private Partial child(Partial p, int f, int d, SearchSpace space) {
+        int len = 0;
+        for (int v = f; v != p.node; v = space.parent[v]) {
+            len++;
+        }
+        int[] segment = new int[len];
+        for (int v = f, i = len - 1; v != p.node; v = space.parent[v], i--) {
+            segment[i] = v;
+        }
+
+        int g = p.gold;
+        for (int v : segment) {
+            if (!isCollected(p.collected, v)) {
+                g += graph.gold[v]; // the nodes of a shortest path are distinct
+            }
+        }
+        return new Partial(p, segment, f, p.time + d, g);
+    }
+
+    /**
+     * Return the gold on the shortest path from node v to the exit (not counting v)
+     * that is not marked in collected.
+     */
+    private int goldToExit(int v, long[] collected) {
+        int g = 0;
+        while (toExit[v] > 0) {
+            v = graph.next(v, toExit);
+            if (!isCollected(collected, v)) {
+                g += graph.gold[v];
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Return the route that follows p and then the shortest path to the exit.
+     */
+    private EscapeRoute complete(Partial p) {
+        List<int[]> segments = new ArrayList<>();
+        for (Partial q = p; q != null; q = q.parent) {
+            segments.add(q.segment);
+        }
+        int[] toEnd = graph.descend(p.node, toExit);
+
+        int len = 1 + toEnd.length;
+        for (int[] s : segments) {
+            len += s.length;
+        }
+        int[] path = new int[len];
+        path[0] = graph.start;
+        int i = 1;
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            System.arraycopy(segments.get(s), 0, path, i, segments.get(s).length);
+            i += segments.get(s).length;
+        }
+        System.arraycopy(toEnd, 0, path, i, toEnd.length);
+        return new EscapeRoute(path, p.time + toExit[p.node], p.completedGold);
+    }
+
+    /**
+     * Return true iff node v is marked in collected.
+     */
+    private static boolean isCollected(long[] collected, int v) {
+        return (collected[v >>> 6] & (1L << v)) != 0;
+    }
+
+    /**
+     * An instance is a partial route: the route of parent followed by segment, ending at
+     * node after time units, having collected gold.
+     * The nodes it collected are only worked out, by settle, for routes that are kept
+     * in the beam, and the gold it would end with, by complete, for routes that could
+     * be the best.
+     */
+    final class Partial {
+        final Partial parent;
+        final int[] segment;
+        final int node;
+        final int time;
+        final int gold;
+
+        /**
+         * Bit v is set iff the route collected the gold of node v (once settled, and
+         * until the routes extending it are settled).
+         */
+        long[] collected;
+
+        /**
+         * The gold of this route completed by the shortest path to the exit (once completed).
+         */
+        int completedGold;
+
+        private Partial(Partial par, int[] seg, int v, int t, int g) {
+            parent = par;
+            segment = seg;
+            node = v;
+            time = t;
+            gold = g;
+        }
+
+        /**
+         * Work out collected for this route, in a graph of n nodes.
+         * Precondition: the parent, if any, is settled.
+         */
+        private void settle(int n) {
+            collected = (parent == null ? new long[(n + 63) >>> 6] : parent.collected.clone());
+            collected[node >>> 6] |= 1L << node;
+            for (int v : segment) {
+                collected[v >>> 6] |= 1L << v;
+            }
+        }
+
+        /**
+         * Work out completedGold for this route and return it.
+         * Precondition: this route is settled.
+         */
+        private int complete() {
+            completedGold = gold + goldToExit(node, collected);
+            return completedGold;
+        }
+    }
+
+    /**
+     * An instance holds the arrays of one search, reused from search to search:
+     * a node's distance and parent are valid only if its stamp is the current one.
+     */
+    private static final class SearchSpace {
+        private final int[] dist;
+        private final int[] parent;
+        private final int[] stamp;
+        private final DistanceHeap heap = new DistanceHeap();
+        private int current;
+
+        private SearchSpace(int n) {
+            dist = new int[n];
+            parent = new int[n];
+            stamp = new int[n];
+        }
+
+        /**
+         * Start a new search: forget every node reached so far.
+         */
+        private void reset() {
+            current++;
+            heap.clear();
+            if (current == 0) { // the stamps wrapped around
+                Arrays.fill(stamp, 0);
+                current = 1;
+            }
+        }
+
+        /**
+         * Return true iff node v has been reached in this search.
+         */
+        private boolean reached(int v) {
+            return stamp[v] == current;
+        }
+
+        /**
+         * Record that node v is reached at distance d from node par, and queue it.
+         */
+        private void reach(int v, int d, int par) {
+            stamp[v] = current;
+            dist[v] = d;
+            parent[v] = par;
+            heap.add(v, d);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * An instance is a binary min-heap of (distance, node) pairs, each packed into
+ * one long with the distance in the high 32 bits, so that comparing pairs is
+ * comparing longs and nothing is allocated per element.
+ * There is no decrease-key: a search adds a node again when it finds a shorter
+ * distance to it and skips stale pairs when it polls them.
+ * <p>
+ * The heaps of package game do not fit the searches here. BucketQueue is not part
+ * of the public API of game, and it needs every priority in the queue to lie within
+ * the longest edge of the smallest, which A*'s estimates do not. IndexMinHeap needs
+ * its capacity up front and keeps a position array of that size, but FrontierExplorer's
+ * map grows as it explores and the beam search clears its heap between searches
+ * without touching per-node state. Its double priorities also break ties by
+ * heap position, while equal distances here are broken by node number, so the
+ * routes chosen do not depend on the order in which pairs were added.
+ */
+final class DistanceHeap {
+
+    private long[] heap = new long[64];
+    private int size;
+
+    /**
+     * Return true iff the heap is empty.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every pair from the heap.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Add node with distance d.
+     * Precondition: 0 <= d and 0 <= node.
+     */
+    void add(int node, int d) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size);
+        }
+        long x = ((long) d << 32) | node;
+        int k = size++;
+        while (k > 0) {
+            int p = (k - 1) >>> 1;
+            if (heap[p] <= x) {
+                break;
+            }
+            heap[k] = heap[p];
+            k = p;
+        }
+        heap[k] = x;
+    }
+
+    /**
+     * Remove and return the pair with the smallest distance (see node and distance).
+     * Precondition: the heap is not empty.
+     */
+    long poll() {
+        long top = heap[0];
+        long x = heap[--size];
+        int k = 0;
+        while (2 * k + 1 < size) {
+            int c = 2 * k + 1;
+            if (c + 1 < size && heap[c + 1] < heap[c]) {
+                c++;
+            }
+            if (x <= heap[c]) {
+                break;
+            }
+            heap[k] = heap[c];
+            k = c;
+        }
+        heap[k] = x;
+        return top;
+    }
+
+    /**
+     * Return the node of a pair returned by poll.
+     */
+    static int node(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Return the distance of a pair returned by poll.
+     */
+    static int distance(long pair) {
+        return (int) (pair >>> 32);
+    }
+}
@@ -0,0 +1,169 @@
+package student;
+
+import game.Cavern;
+import game.Edge;
+import game.EscapeState;
+import game.Node;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An instance is the escape cavern of an EscapeState copied into dense arrays.
+ * The nodes are numbered 0..n-1 in the order the state lists them, through a map
+ * from their ids (which need not be dense), and the exits of node i are at positions
+ * offsets[i]..offsets[i+1]-1 of targets and weights. Searches work on these arrays
+ * rather than on Node and Edge objects.
+ */
+final class EscapeGraph {
+
+    private static final Cavern.Direction[] DIRECTIONS = Cavern.Direction.values();
+
+    /**
+     * Long loops that can be stopped ask whether to stop once every STOP_CHECK_MASK + 1 steps.
+     */
+    static final int STOP_CHECK_MASK = 255;
+
+    final Node[] nodes;
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+    final int[] gold;    // gold[i] is the gold on node i when the graph was made
+    final int[] row;     // row[i] and column[i] give the tile of node i
+    final int[] column;
+    final int start;
+    final int exit;
+    final int minWeight; // the length of the shortest edge (1 if there are none)
+
+    /**
+     * Constructor: the graph of the cavern of state, with its current node as start.
+     */
+    EscapeGraph(EscapeState state) {
+        this(state.getVertices(), state.getCurrentNode(), state.getExit());
+    }
+
+    /**
+     * Constructor: the graph of the open nodes vertices of a cavern, with start and exit.
+     */
+    EscapeGraph(Collection<Node> vertices, Node start, Node exit) {
+        int n = vertices.size();
+        nodes = new Node[n];
+        LongIndexMap index = new LongIndexMap(n);
+        for (Node v : vertices) {
+            nodes[index.add(v.getId())] = v;
+        }
+
+        offsets = new int[n + 1];
+        int[] tgts = new int[4 * n];
+        int[] wts = new int[4 * n];
+        gold = new int[n];
+        row = new int[n];
+        column = new int[n];
+        int m = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            for (Cavern.Direction d : DIRECTIONS) {
+                Edge e = nodes[i].getExit(d);
+                if (e != null) {
+                    tgts[m] = index.get(e.getOther(nodes[i]).getId());
+                    wts[m] = e.length;
+                    min = Math.min(min, e.length);
+                    m++;
+                }
+            }
+            offsets[i + 1] = m;
+            gold[i] = nodes[i].getTile().getGold();
+            row[i] = nodes[i].getTile().getRow();
+            column[i] = nodes[i].getTile().getColumn();
+        }
+        targets = Arrays.copyOf(tgts, m);
+        weights = Arrays.copyOf(wts, m);
+        minWeight = (m == 0 ? 1 : min);
+
+        this.start = index.get(start.getId());
+        this.exit = index.get(exit.getId());
+    }
+
+    /**
+     * Return the number of nodes.
+     */
+    int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Return the distances from node source to every node (-1 for unreachable nodes),
+     * computed with Dijkstra's algorithm. Since every edge has a twin of the same length
+     * going the other way, these are also the distances from every node to source.
+     */
+    int[] distancesFrom(int source) {
+        return distancesFrom(source, () -> false);
+    }
+
+    /**
+     * Return distancesFrom(source), or null if stopped returns true before the
+     * distances are known. stopped is asked every few hundred nodes.
+     */
+    int[] distancesFrom(int source, BooleanSupplier stopped) {
+        int[] dist = new int[nodes.length];
+        Arrays.fill(dist, -1);
+        DistanceHeap heap = new DistanceHeap();
+        dist[source] = 0;
+        heap.add(source, 0);
+        int polls = 0;
+        while (!heap.isEmpty()) {
+            if ((++polls & STOP_CHECK_MASK) == 0 && stopped.getAsBoolean()) {
+                return null;
+            }
+            long top = heap.poll();
+            int f = DistanceHeap.node(top);
+            int d = DistanceHeap.distance(top);
+            if (d > dist[f]) {
+                continue; // stale
+            }
+            for (int k = offsets[f]; k < offsets[f + 1]; k++) {
+                int w = targets[k];
+                int dw = d + weights[k];
+                if (dist[w] < 0 || dw < dist[w]) {
+                    dist[w] = dw;
+                    heap.add(w, dw);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Return the shortest path from node v to the node field was computed from, as the
+     * nodes after v on it, by descending field: each step goes to the first neighbour
+     * whose distance is smaller by exactly the length of the edge to it.
+     * Precondition: field is the result of distancesFrom and field[v] >= 0.
+     */
+    int[] descend(int v, int[] field) {
+        int[] path = new int[16];
+        int len = 0;
+        int f = v;
+        while (field[f] > 0) {
+            f = next(f, field);
+            if (len == path.length) {
+                path = Arrays.copyOf(path, 2 * len);
+            }
+            path[len++] = f;
+        }
+        return Arrays.copyOf(path, len);
+    }
+
+    /**
+     * Return the first neighbour of v whose distance in field is smaller by exactly
+     * the length of the edge to it: the next node on a shortest path down field.
+     * Precondition: field is the result of distancesFrom and field[v] > 0.
+     */
+    int next(int v, int[] field) {
+        int k = offsets[v];
+        while (field[targets[k]] < 0 || field[targets[k]] + weights[k] != field[v]) {
+            k++;
+        }
+        return targets[k];
+    }
+}
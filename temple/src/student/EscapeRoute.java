@@ -0,0 +1,68 @@
+package student;
+
+import game.EscapeState;
+
+/**
+ * An instance is a route out of the escape cavern: the nodes it visits, starting
+ * at the start node and ending at the exit, with its length and the gold it collects.
+ * The nodes are given by their numbers 0..n-1 in an EscapeGraph, not by their ids.
+ */
+final class EscapeRoute {
+    private final int[] path;
+    private final int length;
+    private final int gold;
+
+    /**
+     * Constructor: the route through the EscapeGraph nodes numbered path, of length len,
+     * collecting g gold.
+     */
+    EscapeRoute(int[] path, int len, int g) {
+        this.path = path;
+        length = len;
+        gold = g;
+    }
+
+    /**
+     * Return the EscapeGraph numbers of the nodes the route visits, in order, including
+     * the start and the exit; node i is graph.nodes[i], and i is not its id.
+     * The array is shared and must not be modified.
+     */
+    int[] path() {
+        return path;
+    }
+
+    /**
+     * Return the total length of the edges of the route.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Return the gold the route collects.
+     */
+    int gold() {
+        return gold;
+    }
+
+    /**
+     * Walk this route in state, picking up all gold on the way.
+     * Precondition: state is at the first node of the route, and graph is its graph.
+     */
+    void walk(EscapeState state, EscapeGraph graph) {
+        pickUpGold(state);
+        for (int i = 1; i < path.length; i++) {
+            state.moveTo(graph.nodes[path[i]]);
+            pickUpGold(state);
+        }
+    }
+
+    /**
+     * Pick up the gold on the current node of state, if there is any.
+     */
+    private static void pickUpGold(EscapeState state) {
+        if (state.getCurrentNode().getTile().getGold() > 0) {
+            state.pickUpGold();
+        }
+    }
+}
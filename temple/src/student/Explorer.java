@@ -2,17 +2,30 @@ package student;
 
 import game.EscapeState;
 import game.ExplorationState;
-import game.Node;
-import javafx.collections.transformation.SortedList;
 
-import java.lang.reflect.Array;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class Explorer {
 
-    private LinkedList<Long> haveBeen = new LinkedList<>();
-    private Stack<Long> pathStack = new Stack<>();
-    private Stack<Long> forks = new Stack<>();
+    /**
+     * The number of beam-search rounds escape spends improving its route, unless it is
+     * given a deadline. It is enough for the search to run to the end in caverns of the
+     * usual sizes.
+     */
+    public static final int DEFAULT_ESCAPE_ROUNDS = 64;
+
+    /**
+     * A suggested time for escape to spend planning, in milliseconds, for callers that
+     * opt into a wall-clock deadline with setEscapeDeadline.
+     */
+    public static final long DEFAULT_ESCAPE_DEADLINE_MILLIS = 200;
+
+    private int escapeRounds = DEFAULT_ESCAPE_ROUNDS;
+    private long escapeDeadlineMillis; // 0: plan by rounds
+    private List<AnytimePlanner.Improvement> escapeTrace = Collections.emptyList();
 
     /**
      * Explore the cavern, trying to find the orb in as few steps as possible.
@@ -45,51 +58,7 @@ public class Explorer {
      * @param state the information available at the current state
      */
     public void explore(ExplorationState state) {
-
-        while (state.getDistanceToTarget()!=0) {
-            long current = state.getCurrentLocation();
-
-            //arraylist of neighbour id ordered by distance
-            ArrayList<Long> neighbours = new ArrayList<>();
-            List<game.NodeStatus> temp = (List<game.NodeStatus>) state.getNeighbours();
-            Collections.sort(temp);
-            temp.forEach(n -> neighbours.add(n.getId()));
-
-            //remove neighbours that explorer has been in
-            haveBeen.forEach(n -> neighbours.remove(n));
-
-            switch (neighbours.size()) {
-                case 0:
-                    //go back to last fork
-                    haveBeen.addFirst(current);
-                    goBackToLastFork(state);
-                    break;
-                case 1:
-                    //only one way to go
-                    haveBeen.addFirst(current);
-                    pathStack.push(current);
-                    state.moveTo(neighbours.get(0));
-                    break;
-                default:
-                    //save fork then move to neighbour closest to target
-                    forks.push(current);
-                    haveBeen.addFirst(current);
-                    pathStack.push(current);
-                    state.moveTo(neighbours.get(0));
-                    break;
-            }
-        }
-    }
-
-    private void goBackToLastFork(ExplorationState state) {
-
-        long lastFork = forks.pop();
-        long there;
-        do {
-            there = pathStack.pop();
-            state.moveTo(there);
-        }
-        while(lastFork!=there);
+        new FrontierExplorer().explore(state);
     }
 
     /**
@@ -116,110 +85,45 @@ public class Explorer {
      * @param state the information available at the current state
      */
     public void escape(EscapeState state) {
-
-        ArrayList<Node> vertices = new ArrayList<>(state.getVertices());
-        int maxX = 40;
-        int maxY = 25;
-
-        Node start = state.getCurrentNode();
-        Node exit = state.getExit();
-
-        ArrayList<Node> closedSet = new ArrayList<>();
-        ArrayList<Node> openSet = new ArrayList<>();
-        openSet.add(start);
-        openSet.add(exit);
-
-        Hashtable<Node, Node> cameFrom = new Hashtable<>();
-
-        //map all nodes to have gScore of 1000 which represents infinity
-        //start has a value of 0.
-        Hashtable<Node, Integer> gScore = new Hashtable<>(vertices.size()+1);
-        for (Node node : vertices) {
-            Integer value = 500;
-            if(node.equals(start)) {
-                value = 0;
-            }
-            gScore.put(node, value);
-        }
-
-        //map all nodes to have fScore of 1000 which represents infinity
-        //start has a value of the heuristic distance of start to exit.
-        Hashtable<Node, Integer> fScore = new Hashtable<>(vertices.size()+1);
-        for(Node node : vertices) {
-            Integer value = 500;
-            if(node.equals(start)) {
-                value = getHeuDist(start, exit);
-            }
-            fScore.put(node, value);
-        }
-
-        Stack<Node> path = new Stack<>();
-        System.out.println("Finding path.");
-        while(!openSet.isEmpty()) {
-
-            Iterator<Node> openSetIt = openSet.iterator();
-            Node current = openSetIt.next();
-            while(openSetIt.hasNext()) {
-                Node next = openSetIt.next();
-                current = (fScore.get(next) < fScore.get(current))? next : current;
-            }
-            if(current.equals(exit)) {
-                // end loop and build path
-                System.out.println("Generating path");
-                path.push(exit);
-                while(cameFrom.get(current) != null) {
-                    current = cameFrom.get(current);
-                    path.push(current);
-                }
-                break;
-            }
-            openSet.remove(current);
-            closedSet.add(current);
-            Set<Node> neighbours = current.getNeighbours();
-
-            for(Node neighbour : neighbours) {
-                if(closedSet.contains(neighbour)) {
-                    continue;
-                }
-                int temp_gScore = gScore.get(current) + 1;
-                if(!openSet.contains(neighbour)) {
-                    openSet.add(neighbour);
-                }
-                else if (temp_gScore >= gScore.get(neighbour)) {
-                    continue;
-                }
-
-                cameFrom.put(neighbour, current);
-                gScore.put(neighbour, temp_gScore);
-                fScore.put(neighbour, temp_gScore + getHeuDist(neighbour, exit));
-            }
-        }
-
-        //walk path
-        System.out.println("Walking path");
-        path.pop();
-        try  {
-            state.pickUpGold();
-        } catch (IllegalStateException ex) {
-            //do nothing
-        }
-        while(!path.isEmpty()) {
-            state.moveTo(path.pop());
-            try  {
-                state.pickUpGold();
-            } catch (IllegalStateException ex) {
-                //do nothing
-            }
-        }
+        long start = System.nanoTime();
+        EscapeGraph graph = new EscapeGraph(state);
+        AnytimePlanner planner = new AnytimePlanner(graph, state.getTimeRemaining(), start);
+        EscapeRoute route = (escapeDeadlineMillis > 0
+                ? planner.planUntil(start + TimeUnit.MILLISECONDS.toNanos(escapeDeadlineMillis))
+                : planner.plan(escapeRounds));
+        escapeTrace = planner.trace();
+        route.walk(state, graph);
     }
 
-    private int getHeuDist(Node a, Node b) {
+    /**
+     * Make escape spend at most rounds rounds of beam search improving its route.
+     * Planning by rounds is the default: the route then depends only on the cavern,
+     * not on the machine or its load.
+     */
+    public void setEscapeRounds(int rounds) {
+        escapeRounds = rounds;
+        escapeDeadlineMillis = 0;
+    }
 
-        int aX = a.getTile().getColumn();
-        int aY = a.getTile().getRow();
-        int bX = b.getTile().getColumn();
-        int bY = b.getTile().getRow();
+    /**
+     * Make escape plan against a wall-clock deadline of millis milliseconds from when
+     * it is called instead of a number of rounds, or by rounds again if millis is 0.
+     * The deadline covers reading the cavern and finding the shortest route to the
+     * exit, which are always done however long they take; what is left of it is spent
+     * looking for routes with more gold. Routes then depend on how fast the machine is.
+     */
+    public void setEscapeDeadline(long millis) {
+        escapeDeadlineMillis = Math.max(millis, 0);
+    }
 
-        return (int) Math.sqrt((aX-bX)*(aX-bX) + (aY-bY)*(aY-bY));
+    /**
+     * Return how the route of the last escape improved while it was planned: the time
+     * and gold of the shortest route and then of each better route found, as lines
+     * "t ms: g gold".
+     */
+    public List<String> getEscapeTrace() {
+        List<String> lines = new ArrayList<>();
+        escapeTrace.forEach((i) -> lines.add(i.toString()));
+        return lines;
     }
 }
@@ -0,0 +1,189 @@
+package student;
+
+import game.ExplorationState;
+
+import java.util.Arrays;
+
+/**
+ * An instance explores a cavern by frontier planning. It keeps a map of the nodes
+ * and edges it has seen: the nodes it has stood on, whose neighbours it knows, and
+ * the frontier, nodes it has seen as neighbours but not stood on. At each decision
+ * it picks a frontier node nearest to the orb along the grid and walks there along
+ * a shortest path through the map.
+ * <p>
+ * Unlike a depth-first search, which at a dead end retraces its path one step at a
+ * time to the last fork, this goes straight to the most promising unexplored node,
+ * so it takes fewer steps. The frontier is a heap keyed by distance to the orb.
+ * When the next node is not a neighbour of the current location, a breadth-first
+ * search over the map finds the nearest frontier node at that distance and the
+ * path to it. The search reuses its arrays, resetting them by a stamp instead of
+ * clearing them, and stops as soon as it reaches such a node.
+ */
+final class FrontierExplorer {
+
+    private static final int DEGREE = ExplorationState.MAX_NEIGHBOURS;
+
+    private final LongIndexMap index = new LongIndexMap();
+    private long[] ids = new long[64];
+    private int[] score = new int[64];     // distance to the orb along the grid
+    private boolean[] visited = new boolean[64];
+    private int[] adjacent = new int[64 * DEGREE];
+    private int[] degree = new int[64];
+
+    private final DistanceHeap frontier = new DistanceHeap();
+
+    private int[] stamp = new int[64];
+    private int[] parent = new int[64];
+    private int[] queue = new int[64];
+    private int search;
+
+    private final long[] neighbours = new long[DEGREE];
+    private final int[] neighbourDistances = new int[DEGREE];
+
+    /**
+     * Walk from the current location of state to the orb.
+     */
+    void explore(ExplorationState state) {
+        int current = see(state);
+        while (state.getDistanceToTarget() != 0) {
+            int target = nextTarget(current);
+            current = travel(state, current, target);
+        }
+    }
+
+    /**
+     * Add the current location of state and its neighbours to the map, and return the
+     * current location's index in the map.
+     */
+    private int see(ExplorationState state) {
+        int u = node(state.getCurrentLocation(), state.getDistanceToTarget());
+        if (visited[u]) {
+            return u;
+        }
+        visited[u] = true;
+        int count = state.getNeighbours(neighbours, neighbourDistances);
+        for (int i = 0; i < count; i++) {
+            int w = node(neighbours[i], neighbourDistances[i]);
+            // An edge to a visited node was added when that node was visited.
+            if (!visited[w]) {
+                adjacent[u * DEGREE + degree[u]++] = w;
+                adjacent[w * DEGREE + degree[w]++] = u;
+                frontier.add(w, score[w]);
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Return the index in the map of the node with the given id and distance to the
+     * orb, adding it if it is new.
+     */
+    private int node(long id, int distance) {
+        int v = index.add(id);
+        if (v == ids.length) {
+            int n = 2 * v;
+            ids = Arrays.copyOf(ids, n);
+            score = Arrays.copyOf(score, n);
+            visited = Arrays.copyOf(visited, n);
+            adjacent = Arrays.copyOf(adjacent, n * DEGREE);
+            degree = Arrays.copyOf(degree, n);
+            stamp = Arrays.copyOf(stamp, n);
+            parent = Arrays.copyOf(parent, n);
+            queue = Arrays.copyOf(queue, n);
+        }
+        ids[v] = id;
+        score[v] = distance;
+        return v;
+    }
+
+    /**
+     * Return a frontier node that is nearest to the orb, and of those, nearest to
+     * node u through the map. Throw an IllegalStateException if there is none (the
+     * orb cannot be reached).
+     */
+    private int nextTarget(int u) {
+        int best = -1;
+        while (best < 0) {
+            if (frontier.isEmpty()) {
+                throw new IllegalStateException("Explored the whole cavern without finding the orb");
+            }
+            long top = frontier.poll();
+            if (!visited[DistanceHeap.node(top)]) {
+                best = DistanceHeap.node(top);
+            }
+        }
+        int s = score[best];
+        // The common case: a neighbour is as near to the orb as any frontier node.
+        for (int k = u * DEGREE; k < u * DEGREE + degree[u]; k++) {
+            int w = adjacent[k];
+            if (!visited[w] && score[w] == s) {
+                frontier.add(best, s);
+                return w;
+            }
+        }
+        frontier.add(best, s);
+        return nearest(u, s);
+    }
+
+    /**
+     * Return a frontier node with score s that is nearest to node u through the map,
+     * leaving the path to it from u in parent.
+     * Precondition: there is such a node.
+     */
+    private int nearest(int u, int s) {
+        search++;
+        int head = 0;
+        int tail = 0;
+        stamp[u] = search;
+        parent[u] = -1;
+        queue[tail++] = u;
+        while (head < tail) {
+            int v = queue[head++];
+            if (!visited[v] && score[v] == s) {
+                return v;
+            }
+            for (int k = v * DEGREE; k < v * DEGREE + degree[v]; k++) {
+                int w = adjacent[k];
+                if (stamp[w] != search) {
+                    stamp[w] = search;
+                    parent[w] = v;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        throw new IllegalStateException("No frontier node at distance " + s + " is reachable");
+    }
+
+    /**
+     * Walk from node u to node target, which is either a neighbour of u or was
+     * returned by the last call of nearest(u, s), seeing each node on the way.
+     * Return the index of target.
+     */
+    private int travel(ExplorationState state, int u, int target) {
+        if (isAdjacent(u, target)) {
+            state.moveTo(ids[target]);
+            return see(state);
+        }
+        int len = 0;
+        for (int v = target; v != u; v = parent[v]) {
+            queue[len++] = v; // the search is over, so its queue can hold the path
+        }
+        for (int i = len - 1; i >= 0; i--) {
+            state.moveTo(ids[queue[i]]);
+            see(state);
+        }
+        return target;
+    }
+
+    /**
+     * Return true iff the map has an edge from node u to node v.
+     */
+    private boolean isAdjacent(int u, int v) {
+        for (int k = u * DEGREE; k < u * DEGREE + degree[u]; k++) {
+            if (adjacent[k] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
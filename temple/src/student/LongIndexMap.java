@@ -0,0 +1,102 @@
+package student;
+
+/**
+ * An instance numbers the longs added to it 0, 1, 2, ... in the order they are
+ * first added, held by open addressing (linear probing) in primitive arrays, so
+ * adding and looking up take expected constant time without creating any objects.
+ */
+final class LongIndexMap {
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int shift; // 64 - log2(keys.length)
+    private int size;
+
+    /**
+     * Constructor: an empty map.
+     */
+    LongIndexMap() {
+        this(32);
+    }
+
+    /**
+     * Constructor: an empty map that holds expected longs without growing.
+     */
+    LongIndexMap(int expected) {
+        int capacity = 64;
+        while (capacity < 2L * expected && capacity < (1 << 30)) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        shift = Long.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    /**
+     * Return the number of longs in the map.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of v, or -1 if v is not in the map.
+     */
+    int get(long v) {
+        int i = slot(v);
+        return (used[i] ? values[i] : -1);
+    }
+
+    /**
+     * Return the number of v, adding v (with the next number) if it is not in the map.
+     */
+    int add(long v) {
+        int i = slot(v);
+        if (used[i]) {
+            return values[i];
+        }
+        used[i] = true;
+        keys[i] = v;
+        values[i] = size;
+        size++;
+        if (2 * size > keys.length) {
+            grow();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Return the slot holding v, or the empty slot where it belongs.
+     * The home slot is the top log2(capacity) bits of the Fibonacci hash of v.
+     */
+    private int slot(long v) {
+        int mask = keys.length - 1;
+        int i = (int) (v * 0x9E3779B97F4A7C15L >>> shift);
+        while (used[i] && keys[i] != v) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Double the capacity of the table.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        used = new boolean[2 * oldKeys.length];
+        shift--;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
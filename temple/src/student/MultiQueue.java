@@ -0,0 +1,200 @@
+package student;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An instance is a relaxed priority queue of elements of type E that many threads
+ * can use at once (a MultiQueue). It has the operations of PriorityQueue, but poll
+ * need not return the element of lowest priority, only one of low priority.
+ * Duplicate elements are not allowed. The priorities are double values.
+ * <p>
+ * The elements are spread over several PriorityQueueImpl heaps, each guarded by its
+ * own lock. add puts an element in a random heap. poll looks at the lowest priorities
+ * of two random heaps, which are cached outside the locks together with the heaps'
+ * sizes (any double, even +infinity, is a priority, so only the size tells that a
+ * heap is empty), and polls the better one, trying other heaps if that one is locked.
+ * So threads rarely wait for one another, and with c heaps an element polled is
+ * expected to be among the O(c) lowest.
+ * After POLL_ATTEMPTS failed tries, poll stops sampling and waits for the lock of
+ * the first heap that is not empty instead, so it cannot spin for long.
+ * A concurrent map records the heap of each element, for updatePriority.
+ */
+public class MultiQueue<E> {
+
+    private final PriorityQueueImpl<E>[] heaps;
+    private final ReentrantLock[] locks;
+    private final AtomicLongArray mins; // bits of the lowest priority in each heap that is not empty
+    private final AtomicIntegerArray sizes; // the number of elements in each heap
+    private final ConcurrentHashMap<E, Integer> owner = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * The number of times poll tries random pairs of heaps before it waits for a lock.
+     */
+    static final int POLL_ATTEMPTS = 16;
+
+    /**
+     * Constructor: an empty queue spread over c heaps (at least 2). A good c is a
+     * small multiple of the number of threads that will use the queue.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MultiQueue(int c) {
+        int n = Math.max(c, 2);
+        heaps = new PriorityQueueImpl[n];
+        locks = new ReentrantLock[n];
+        mins = new AtomicLongArray(n);
+        sizes = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            heaps[i] = new PriorityQueueImpl<>();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Return the number of elements in the priority queue. While other threads
+     * change the queue, this is only a snapshot.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Return true iff e is in the priority queue.
+     */
+    public boolean contains(E e) {
+        return owner.containsKey(e);
+    }
+
+    /**
+     * Add e with priority p to the priority queue.
+     * Throw an illegalArgumentException if e is already in the queue.
+     */
+    public void add(E e, double p) throws IllegalArgumentException {
+        int i = ThreadLocalRandom.current().nextInt(heaps.length);
+        locks[i].lock();
+        try {
+            if (owner.putIfAbsent(e, i) != null) {
+                throw new IllegalArgumentException("e is already in priority queue");
+            }
+            heaps[i].add(e, p);
+            refreshMin(i);
+            // Counted under the lock, so no poll can take e out before it is counted.
+            size.incrementAndGet();
+        } finally {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Remove and return an element of the priority queue with low priority, or
+     * return null if the queue is empty.
+     */
+    public E poll() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        for (int attempt = 0; ; attempt++) {
+            boolean sampling = attempt < POLL_ATTEMPTS;
+            int best = -1;
+            if (sampling) {
+                int i = rand.nextInt(heaps.length);
+                int j = rand.nextInt(heaps.length);
+                best = (better(j, i) ? j : i);
+            }
+            if (best < 0 || sizes.get(best) == 0) {
+                // Both look empty, or sampling has failed too often: look for a heap
+                // that is not, or give up.
+                best = nonEmpty();
+                if (best < 0) {
+                    return null;
+                }
+            }
+
+            if (sampling) {
+                if (!locks[best].tryLock()) {
+                    Thread.onSpinWait(); // another thread is using it; try two other heaps
+                    continue;
+                }
+            } else {
+                locks[best].lock();
+            }
+            E e = null;
+            try {
+                if (!heaps[best].isEmpty()) {
+                    e = heaps[best].poll();
+                    owner.remove(e);
+                    refreshMin(best);
+                    size.decrementAndGet();
+                }
+            } finally {
+                locks[best].unlock();
+            }
+            if (e != null) {
+                return e;
+            }
+            Thread.onSpinWait(); // another thread emptied it first
+        }
+    }
+
+    /**
+     * Change the priority of element e to p.
+     * Throw an illegalArgumentException if e is not in the priority queue.
+     */
+    public void updatePriority(E e, double p) {
+        while (true) {
+            Integer i = owner.get(e);
+            if (i == null) throw new IllegalArgumentException();
+            locks[i].lock();
+            try {
+                // e may have been polled, and perhaps added again elsewhere, before the lock was taken.
+                if (heaps[i].contains(e)) {
+                    heaps[i].updatePriority(e, p);
+                    refreshMin(i);
+                    return;
+                }
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Return true iff heap i is a better one to poll than heap j, by their cached
+     * sizes and lowest priorities: i is not empty, and j is empty or has a higher
+     * lowest priority.
+     */
+    private boolean better(int i, int j) {
+        if (sizes.get(i) == 0) {
+            return false;
+        }
+        return sizes.get(j) == 0
+                || Double.longBitsToDouble(mins.get(i)) < Double.longBitsToDouble(mins.get(j));
+    }
+
+    /**
+     * Return the index of a heap whose cached size says it is not empty,
+     * or -1 if there is none.
+     */
+    private int nonEmpty() {
+        for (int k = 0; k < heaps.length; k++) {
+            if (sizes.get(k) != 0) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Cache the size and lowest priority of heap i.
+     * Precondition: the lock of heap i is held.
+     */
+    private void refreshMin(int i) {
+        if (!heaps[i].isEmpty()) {
+            mins.set(i, Double.doubleToLongBits(heaps[i].peekPriority()));
+        }
+        sizes.set(i, heaps[i].size());
+    }
+}
@@ -0,0 +1,291 @@
+package student;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * An instance is a priority queue of elements of type E implemented as a pairing heap:
+ * a tree in which every node's priority is at most its children's, with each node's
+ * children kept in a list linked through their sibling fields.
+ * <p>
+ * add and melding two trees take constant time. poll removes the root and melds its
+ * children in two passes, in O(log N) amortised time. Lowering a priority cuts the
+ * element's subtree out and melds it back in at the root in constant time (its
+ * amortised cost is known to be o(log N)), so searches that lower priorities far more
+ * often than they poll pay less per change than with the binary heap of PriorityQueueImpl.
+ * Raising a priority removes the element and adds it again, in O(log N) amortised time.
+ * A map from each element to its tree node serves as the element's handle.
+ */
+public class PairingHeap<E> implements PriorityQueue<E> {
+
+    private PNode<E> root; // null iff the heap is empty
+    private int size;      // number of elements in the priority queue
+    private final HashMap<E, PNode<E>> nodes = new HashMap<>();
+
+    /**
+     * Constructor: an empty heap.
+     */
+    public PairingHeap() {
+    }
+
+    /**
+     * Return a string that gives this priority queue, in the format:
+     * [item0:priority0, item1:priority1, ..., item(N-1):priority(N-1)]
+     * Thus, the list is delimited by '['  and ']' and ", " (i.e. a
+     * comma and a space char) separate adjacent items.
+     * The elements are listed in preorder of the heap, so the first is the root.
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        appendTree(root, s);
+        return "[" + s.toString() + "]";
+    }
+
+    /**
+     * Append the elements of the trees in the sibling list starting at n to s, in preorder.
+     */
+    private void appendTree(PNode<E> n, StringBuilder s) {
+        for (; n != null; n = n.sibling) {
+            if (s.length() > 0) {
+                s.append(", ");
+            }
+            s.append(n.element + ":" + n.priority);
+            appendTree(n.child, s);
+        }
+    }
+
+    /**
+     * Return the number of elements in the priority queue.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return true iff the priority queue is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return true iff e is in the priority queue.
+     */
+    @Override
+    public boolean contains(E e) {
+        return nodes.containsKey(e);
+    }
+
+    /**
+     * Add e with priority p to the priority queue.
+     * Throw an illegalArgumentException if e is already in the queue.
+     */
+    @Override
+    public void add(E e, double p) throws IllegalArgumentException {
+        if (nodes.containsKey(e)) {
+            throw new IllegalArgumentException("e is already in priority queue");
+        }
+        PNode<E> n = new PNode<>(e, p);
+        nodes.put(e, n);
+        root = meld(root, n);
+        size = size + 1;
+    }
+
+    /**
+     * Add each element es[i] with priority ps[i] to the priority queue.
+     * Throw an illegalArgumentException, leaving the queue unchanged, if es and ps
+     * differ in length or an element is in the queue or in es more than once.
+     */
+    @Override
+    public void addAll(List<? extends E> es, double[] ps) throws IllegalArgumentException {
+        if (es.size() != ps.length) {
+            throw new IllegalArgumentException("es and ps differ in length");
+        }
+        if (new HashSet<>(es).size() != es.size()) {
+            throw new IllegalArgumentException("an element is in es more than once");
+        }
+        for (E e : es) {
+            if (nodes.containsKey(e)) {
+                throw new IllegalArgumentException("e is already in priority queue");
+            }
+        }
+        for (int i = 0; i < ps.length; i++) {
+            add(es.get(i), ps[i]);
+        }
+    }
+
+    /**
+     * Return the element of the priority queue with lowest priority, without changing the queue.
+     * Throw a PCueException with message "priority queue is empty" if the priority queue is empty.
+     */
+    @Override
+    public E peek() {
+        if (root == null) {
+            throw new PriorityQueueException("priority queue is empty");
+        }
+        return root.element;
+    }
+
+    /**
+     * Remove and return the element of the priority queue with lowest priority.
+     * Throw a PCueException with message "priority queue is empty" if the priority queue is empty.
+     */
+    @Override
+    public E poll() {
+        if (root == null) {
+            throw new PriorityQueueException("priority queue is empty");
+        }
+        PNode<E> r = root;
+        nodes.remove(r.element);
+        root = mergePairs(r.child);
+        r.child = null;
+        size = size - 1;
+        return r.element;
+    }
+
+    /**
+     * Change the priority of element e to p.
+     * Throw an illegalArgumentException if e is not in the priority queue.
+     */
+    @Override
+    public void updatePriority(E e, double p) {
+        PNode<E> n = nodes.get(e);
+        if (n == null) throw new IllegalArgumentException();
+
+        if (p <= n.priority) {
+            // n's subtree stays a heap: cut it out and meld it back in
+            n.priority = p;
+            if (n != root) {
+                cut(n);
+                root = meld(root, n);
+            }
+        } else {
+            // n's children may now belong above it: take it out and add it again
+            if (n == root) {
+                root = mergePairs(n.child);
+            } else {
+                cut(n);
+                root = meld(root, mergePairs(n.child));
+            }
+            n.child = null;
+            n.priority = p;
+            root = meld(root, n);
+        }
+    }
+
+    /**
+     * Change the priority of each element es[i] to ps[i].
+     * Throw an illegalArgumentException, leaving the queue unchanged, if es and ps
+     * differ in length or an element of es is not in the priority queue.
+     */
+    @Override
+    public void updatePriorities(List<? extends E> es, double[] ps) {
+        if (es.size() != ps.length) {
+            throw new IllegalArgumentException("es and ps differ in length");
+        }
+        for (E e : es) {
+            if (!nodes.containsKey(e)) {
+                throw new IllegalArgumentException("e is not in priority queue");
+            }
+        }
+        for (int i = 0; i < ps.length; i++) {
+            updatePriority(es.get(i), ps[i]);
+        }
+    }
+
+    /**
+     * Return the tree made by melding the trees a and b (either of which may be null):
+     * the one whose root has the larger priority becomes the first child of the other.
+     * Precondition: a and b are roots of trees (they have no siblings or parent).
+     */
+    private static <E> PNode<E> meld(PNode<E> a, PNode<E> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (b.priority < a.priority) {
+            PNode<E> t = a;
+            a = b;
+            b = t;
+        }
+        b.prev = a;
+        b.sibling = a.child;
+        if (a.child != null) {
+            a.child.prev = b;
+        }
+        a.child = b;
+        return a;
+    }
+
+    /**
+     * Return the tree made by melding all the trees in the sibling list starting at first
+     * (null if it is empty): meld them in pairs from left to right, and then meld the
+     * results from right to left. Both passes are loops, so deep lists are fine.
+     */
+    private static <E> PNode<E> mergePairs(PNode<E> first) {
+        // Pass 1: the melded pairs are chained through their sibling fields in reverse order.
+        PNode<E> pairs = null;
+        PNode<E> a = first;
+        while (a != null) {
+            PNode<E> b = a.sibling;
+            PNode<E> next = (b == null ? null : b.sibling);
+            a.prev = null;
+            a.sibling = null;
+            if (b != null) {
+                b.prev = null;
+                b.sibling = null;
+            }
+            PNode<E> m = meld(a, b);
+            m.sibling = pairs;
+            pairs = m;
+            a = next;
+        }
+
+        // Pass 2
+        PNode<E> result = null;
+        while (pairs != null) {
+            PNode<E> next = pairs.sibling;
+            pairs.sibling = null;
+            result = meld(pairs, result);
+            pairs = next;
+        }
+        return result;
+    }
+
+    /**
+     * Detach the subtree rooted at n from its parent and siblings.
+     * Precondition: n is not the root.
+     */
+    private static <E> void cut(PNode<E> n) {
+        if (n.prev.child == n) {
+            n.prev.child = n.sibling;
+        } else {
+            n.prev.sibling = n.sibling;
+        }
+        if (n.sibling != null) {
+            n.sibling.prev = n.prev;
+        }
+        n.prev = null;
+        n.sibling = null;
+    }
+
+    /**
+     * An instance is a node of the heap, holding an element and its priority.
+     */
+    private static class PNode<E> {
+        private final E element;
+        private double priority;
+        private PNode<E> child;   // first child, or null
+        private PNode<E> sibling; // next sibling, or null
+        private PNode<E> prev;    // previous sibling, or the parent if this is a first child
+
+        /**
+         * Constructor: a node for element e with priority p and no children.
+         */
+        private PNode(E e, double p) {
+            element = e;
+            priority = p;
+        }
+    }
+}
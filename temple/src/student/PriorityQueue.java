@@ -1,5 +1,9 @@
 package student;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
 /**
  * An implementation implements a priority queue whose elements are of type E.
  * Below, N is used as the number of elements currently in the priority queue.
@@ -21,6 +25,15 @@ public interface PriorityQueue<E> {
      */
     int size();
 
+    /**
+     * Return true iff e is in the priority queue.
+     * This implementation throws an UnsupportedOperationException, so that
+     * implementations written before it was added still compile.
+     */
+    default boolean contains(E e) {
+        throw new UnsupportedOperationException("contains");
+    }
+
     /**
      * Add e with priority p to the priority queue.
      * Throw an illegalArgumentException if e is already in the queue.
@@ -47,4 +60,55 @@ public interface PriorityQueue<E> {
      * Throw an illegalArgumentException if e is not in the priority queue.
      */
     void updatePriority(E e, double p);
+
+    /**
+     * Add each element es[i] with priority ps[i] to the priority queue.
+     * Throw an illegalArgumentException if es and ps differ in length or an element
+     * is in the queue or in es more than once.
+     * This implementation checks es and then adds the elements one at a time, so if
+     * an element is already in the queue, the elements before it stay added.
+     * Implementations may instead leave the queue unchanged, and build the heap from
+     * all of the elements at once.
+     */
+    default void addAll(List<? extends E> es, double[] ps) throws IllegalArgumentException {
+        if (es.size() != ps.length) {
+            throw new IllegalArgumentException("es and ps differ in length");
+        }
+        if (new HashSet<>(es).size() != es.size()) {
+            throw new IllegalArgumentException("an element is in es more than once");
+        }
+        for (int i = 0; i < ps.length; i++) {
+            add(es.get(i), ps[i]);
+        }
+    }
+
+    /**
+     * Remove the k elements of lowest priority (or all of them, if there are fewer),
+     * append them to out in order of priority, and return how many were removed.
+     */
+    default int pollBatch(int k, Collection<? super E> out) {
+        int n = Math.min(k, size());
+        for (int i = 0; i < n; i++) {
+            out.add(poll());
+        }
+        return n;
+    }
+
+    /**
+     * Change the priority of each element es[i] to ps[i].
+     * Throw an illegalArgumentException if es and ps differ in length or an element
+     * of es is not in the priority queue.
+     * This implementation changes them one at a time with updatePriority, so if an
+     * element is not in the queue, the elements before it stay changed.
+     * Implementations may instead leave the queue unchanged, and restore the heap
+     * once after changing all of them.
+     */
+    default void updatePriorities(List<? extends E> es, double[] ps) {
+        if (es.size() != ps.length) {
+            throw new IllegalArgumentException("es and ps differ in length");
+        }
+        for (int i = 0; i < ps.length; i++) {
+            updatePriority(es.get(i), ps[i]);
+        }
+    }
 }
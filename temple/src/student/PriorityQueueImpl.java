@@ -2,6 +2,7 @@ package student;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * An instance is a priority queue of elements of type E implemented as a heap.
@@ -32,6 +33,18 @@ public class PriorityQueueImpl<E> implements PriorityQueue<E> {
     public PriorityQueueImpl() {
     }
 
+    /**
+     * Constructor: a heap of each element es[i] with priority ps[i], built
+     * bottom-up in O(N) time.
+     * Throw an illegalArgumentException if es and ps differ in length or an
+     * element is in es more than once.
+     */
+    public PriorityQueueImpl(List<? extends E> es, double[] ps) {
+        b = new ArrayList<>(es.size());
+        map = new HashMap<>(es.size() * 4 / 3 + 1);
+        addAll(es, ps);
+    }
+
     /**
      * Return a string that gives this priority queue, in the format:
      * [item0:priority0, item1:priority1, ..., item(N-1):priority(N-1)]
@@ -75,6 +88,14 @@ public class PriorityQueueImpl<E> implements PriorityQueue<E> {
         return size;
     }
 
+    /**
+     * Return true iff e is in the priority queue.
+     */
+    @Override
+    public boolean contains(E e) {
+        return map.containsKey(e);
+    }
+
     /**
      * Return true iff the priority queue is empty.
      */
@@ -110,6 +131,14 @@ public class PriorityQueueImpl<E> implements PriorityQueue<E> {
         return b.get(0);
     }
 
+    /**
+     * Return the priority of the element of the priority queue with lowest priority.
+     * Throw a PCueException if the priority queue is empty.
+     */
+    public double peekPriority() {
+        return map.get(peek()).priority;
+    }
+
     /**
      * Remove and return the element of the priority queue with lowest priority.
      * Throw a PCueException with message "priority queue is empty" if the priority queue is empty.
@@ -157,6 +186,127 @@ public class PriorityQueueImpl<E> implements PriorityQueue<E> {
     }
 
 
+    /**
+     * Add each element es[i] with priority ps[i] to the priority queue.
+     * Throw an illegalArgumentException, leaving the queue unchanged, if es and ps
+     * differ in length or an element is in the queue or in es more than once.
+     * If there are enough new elements, they are appended and the whole heap is
+     * rebuilt bottom-up in O(N) time instead of bubbling each one up.
+     */
+    @Override
+    public void addAll(List<? extends E> es, double[] ps) throws IllegalArgumentException {
+        if (es.size() != ps.length) {
+            throw new IllegalArgumentException("es and ps differ in length");
+        }
+        for (int i = 0; i < ps.length; i++) {
+            E e = es.get(i);
+            if (map.containsKey(e)) {
+                for (int j = 0; j < i; j++) {
+                    map.remove(es.get(j));
+                }
+                throw new IllegalArgumentException("e is already in priority queue");
+            }
+            map.put(e, new EInfo(size + i, ps[i]));
+        }
+
+        int oldSize = size;
+        b.addAll(es);
+        size = b.size();
+        if (worthHeapifying(ps.length)) {
+            heapify();
+        } else {
+            for (int k = oldSize; k < size; k++) {
+                bubbleUp(k);
+            }
+        }
+    }
+
+    /**
+     * Change the priority of each element es[i] to ps[i].
+     * Throw an illegalArgumentException, leaving the queue unchanged, if es and ps
+     * differ in length or an element of es is not in the priority queue.
+     * If there are enough changes, the heap is rebuilt once, bottom-up in O(N) time,
+     * after all of them instead of being restored after each one.
+     */
+    @Override
+    public void updatePriorities(List<? extends E> es, double[] ps) {
+        if (es.size() != ps.length) {
+            throw new IllegalArgumentException("es and ps differ in length");
+        }
+        for (E e : es) {
+            if (!map.containsKey(e)) {
+                throw new IllegalArgumentException("e is not in priority queue");
+            }
+        }
+
+        if (!worthHeapifying(ps.length)) {
+            for (int i = 0; i < ps.length; i++) {
+                updatePriority(es.get(i), ps[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < ps.length; i++) {
+            map.get(es.get(i)).priority = ps[i];
+        }
+        heapify();
+    }
+
+    /**
+     * Return true iff restoring the heap after changing m of its elements is
+     * cheaper by rebuilding it, O(N), than by bubbling each one, O(m log N).
+     * Rebuilding touches every element, so it only wins once m log N is a few
+     * times N: with the factor 4, from about N/2 changes at N = 1,000 and N/4 at
+     * N = 100,000, which is where the heap.bulk benchmarks cross over.
+     */
+    private boolean worthHeapifying(int m) {
+        return (long) m * (32 - Integer.numberOfLeadingZeros(size)) > 4L * size;
+    }
+
+    /**
+     * Make b[0..size-1] a heap by sifting down every parent, last first.
+     * The elements, their EInfo objects and their priorities are copied into arrays
+     * first, so that the sifting looks nothing up in map.
+     */
+    private void heapify() {
+        @SuppressWarnings("unchecked")
+        E[] es = (E[]) b.toArray();
+        EInfo[] infos = new EInfo[size];
+        double[] ps = new double[size];
+        for (int i = 0; i < size; i++) {
+            infos[i] = map.get(es[i]);
+            ps[i] = infos[i].priority;
+        }
+
+        for (int k = size / 2 - 1; k >= 0; k--) {
+            E e = es[k];
+            EInfo info = infos[k];
+            double p = ps[k];
+            // Inv: e belongs in es[k], which is considered to be empty.
+            int i = k;
+            while (2 * i + 1 < size) {
+                int c = 2 * i + 1;
+                if (c + 1 < size && ps[c + 1] < ps[c]) {
+                    c++;
+                }
+                if (p <= ps[c]) {
+                    break;
+                }
+                es[i] = es[c];
+                infos[i] = infos[c];
+                ps[i] = ps[c];
+                i = c;
+            }
+            es[i] = e;
+            infos[i] = info;
+            ps[i] = p;
+        }
+
+        for (int i = 0; i < size; i++) {
+            b.set(i, es[i]);
+            infos[i].index = i;
+        }
+    }
+
     /**
      * Bubble b[k] up in heap to its right place.
      * Precondition: Every b[i] satisfies the heap property except perhaps